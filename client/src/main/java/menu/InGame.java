@@ -223,7 +223,7 @@ public class InGame implements ServerMessageObserver {
             return null;
         }
 
-        return new ChessPosition(row, col);
+        return ChessPosition.of(row, col);
     }
 
 
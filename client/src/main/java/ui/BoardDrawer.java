@@ -19,18 +19,18 @@ public class BoardDrawer {
         draw(board);
         System.out.println();
 
-        board.movePiece(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        board.movePiece(new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null));
         draw(board, ChessGame.TeamColor.BLACK);
         System.out.println();
 
-        board.movePiece(new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null));
-        board.movePiece(new ChessMove(new ChessPosition(1, 4), new ChessPosition(3, 6), null));
-        board.movePiece(new ChessMove(new ChessPosition(8, 4), new ChessPosition(6, 6), null));
-        ChessPosition startPosition = new ChessPosition(3, 6);
+        board.movePiece(new ChessMove(ChessPosition.of(7, 5), ChessPosition.of(5, 5), null));
+        board.movePiece(new ChessMove(ChessPosition.of(1, 4), ChessPosition.of(3, 6), null));
+        board.movePiece(new ChessMove(ChessPosition.of(8, 4), ChessPosition.of(6, 6), null));
+        ChessPosition startPosition = ChessPosition.of(3, 6);
         drawMoves(board, ChessGame.TeamColor.WHITE, board.getPieceMoves(startPosition), startPosition);
         System.out.println();
 
-        startPosition = new ChessPosition(6, 6);
+        startPosition = ChessPosition.of(6, 6);
         drawMoves(board, ChessGame.TeamColor.BLACK, board.getPieceMoves(startPosition), startPosition);
     }
 
@@ -142,13 +142,13 @@ public class BoardDrawer {
     private static void setSquareColor(PrintStream out, int row, int col, Collection<ChessPosition> endPositions) {
         if(((row + col) % 2) == 0) {
             out.print(SET_BG_COLOR_BLACK);
-            if(endPositions.contains(new ChessPosition(row, col))) {
+            if(endPositions.contains(ChessPosition.of(row, col))) {
                 out.print(SET_BG_COLOR_DARK_YELLOW);
             }
         }
         else {
             out.print(SET_BG_COLOR_WHITE);
-            if(endPositions.contains(new ChessPosition(row, col))) {
+            if(endPositions.contains(ChessPosition.of(row, col))) {
                 out.print(SET_BG_COLOR_YELLOW);
             }
         }
@@ -158,7 +158,7 @@ public class BoardDrawer {
 
     private static void drawPiece(PrintStream out, ChessBoard board, int row, int col,
                                   Collection<ChessPosition> endPositions, ChessPosition startPosition) {
-        ChessPiece piece = board.getPiece(new ChessPosition(row, col));
+        ChessPiece piece = board.getPiece(ChessPosition.of(row, col));
 
         String pieceString = null;
         if(piece == null) {
@@ -167,7 +167,7 @@ public class BoardDrawer {
         else if(piece.getTeamColor() == ChessGame.TeamColor.BLACK) {
             out.print(SET_TEXT_COLOR_MAGENTA);
 
-            if(new ChessPosition(row, col).equals(startPosition)) {
+            if(ChessPosition.of(row, col).equals(startPosition)) {
                 out.print(SET_TEXT_COLOR_BLACK);
                 out.print(SET_BG_COLOR_MAGENTA);
             }
@@ -194,7 +194,7 @@ public class BoardDrawer {
         else {
             out.print(SET_TEXT_COLOR_GREEN);
 
-            if(new ChessPosition(row, col).equals(startPosition)) {
+            if(ChessPosition.of(row, col).equals(startPosition)) {
                 out.print(SET_TEXT_COLOR_BLACK);
                 out.print(SET_BG_COLOR_GREEN);
             }
@@ -219,7 +219,7 @@ public class BoardDrawer {
             }
         }
 
-        ChessPosition position = new ChessPosition(row, col);
+        ChessPosition position = ChessPosition.of(row, col);
         if(position.equals(startPosition) || endPositions.contains(position)) {
             out.print(SET_TEXT_COLOR_BLACK);
         }
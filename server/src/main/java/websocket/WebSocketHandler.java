@@ -1,6 +1,7 @@
 package websocket;
 
 import chess.*;
+import chess.ChessGame.GameStatus;
 import chess.ChessGame.TeamColor;
 import com.google.gson.*;
 import dataaccess.*;
@@ -125,11 +126,12 @@ public class WebSocketHandler {
             sendError(session, "ERROR: It isn't your turn");
             return;
         }
-        if(game.isInCheckmate(color)) {
+        GameStatus status = game.getGameStatus();
+        if(status == GameStatus.CHECKMATE) {
             sendError(session, "ERROR: You cannot move because you are in checkmate");
             return;
         }
-        if(game.isInStalemate(color)) {
+        if(status == GameStatus.STALEMATE) {
             sendError(session, "ERROR: You cannot move because you are in stalemate");
             return;
         }
@@ -158,15 +160,16 @@ public class WebSocketHandler {
         String notificationString = username + " moved " + encode(startPosition) + " to " + encode(endPosition);
         broadcastNotification(gameID, authToken, notificationString);
 
-        if(game.isInCheckmate(game.getTeamTurn())) {
+        status = game.getGameStatus();
+        if(status == GameStatus.CHECKMATE) {
             notificationString = game.getTeamTurn().toString() + " is in checkmate";
             broadcastNotification(gameID, null, notificationString);
         }
-        else if(game.isInCheck(game.getTeamTurn())) {
+        else if(status == GameStatus.CHECK) {
             notificationString = game.getTeamTurn().toString() + " is in check";
             broadcastNotification(gameID, null, notificationString);
         }
-        else if(game.isInStalemate(game.getTeamTurn())) {
+        else if(status == GameStatus.STALEMATE) {
             notificationString = "The game is in stalemate";
             broadcastNotification(gameID, null, notificationString);
         }
@@ -0,0 +1,90 @@
+package chess;
+
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece.PieceType;
+
+/**
+ * Helpers for working with 64-bit bitboards
+ * <p>
+ * Squares are numbered 0 to 63, starting with a1 (row 1, column 1) and
+ * moving left to right, then bottom to top, so h1 is 7 and a8 is 56.
+ */
+public final class Bitboards {
+
+    public static final int PIECE_TYPES = PieceType.values().length;
+    public static final int PIECE_KINDS = 2 * PIECE_TYPES;
+
+    private static final PieceType[] TYPES = PieceType.values();
+
+    private Bitboards() { }
+
+    /**
+     * @return the square index of a position
+     */
+    public static int square(ChessPosition position) {
+        return square(position.getRow(), position.getColumn());
+    }
+
+    /**
+     * @return the square index of a 1-based row and column
+     */
+    public static int square(int row, int col) {
+        return (row - 1) * 8 + (col - 1);
+    }
+
+    /**
+     * @return the 1-based row of a square
+     */
+    public static int row(int square) {
+        return (square >>> 3) + 1;
+    }
+
+    /**
+     * @return the 1-based column of a square
+     */
+    public static int column(int square) {
+        return (square & 7) + 1;
+    }
+
+    /**
+     * @return the shared ChessPosition for a square index
+     */
+    public static ChessPosition position(int square) {
+        return ChessPosition.of(row(square), column(square));
+    }
+
+    /**
+     * @return a bitboard with only the given square set
+     */
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    /**
+     * @return the square of the lowest set bit of a non-empty bitboard
+     */
+    public static int firstSquare(long bitboard) {
+        return Long.numberOfTrailingZeros(bitboard);
+    }
+
+    /**
+     * @return the index of a colored piece, used to pick its bitboard
+     */
+    public static int pieceIndex(TeamColor color, PieceType type) {
+        return color.ordinal() * PIECE_TYPES + type.ordinal();
+    }
+
+    /**
+     * @return the color of a piece index
+     */
+    public static TeamColor colorOf(int pieceIndex) {
+        return pieceIndex < PIECE_TYPES ? TeamColor.WHITE : TeamColor.BLACK;
+    }
+
+    /**
+     * @return the type of a piece index
+     */
+    public static PieceType typeOf(int pieceIndex) {
+        return TYPES[pieceIndex % PIECE_TYPES];
+    }
+}
@@ -1,9 +1,16 @@
 package chess;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
 import chess.ChessGame.TeamColor;
 import chess.ChessPiece.PieceType;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
 /**
  * A chessboard that can hold and rearrange chess pieces.
@@ -11,9 +18,21 @@ import chess.ChessPiece.PieceType;
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(ChessBoard.Adapter.class)
 public class ChessBoard implements Cloneable {
 
-    ChessPiece[][] squares = new ChessPiece[8][8];
+    private static final String PIECE_CHARS = "KQBNRPkqbnrp";
+
+    long[] pieces = new long[Bitboards.PIECE_KINDS];
+    long[] colors = new long[2];
+    long occupied = 0L;
+    //Derived from the pieces and never saved: the adapter rebuilds them square by square
+    transient long key = 0L;
+    //Zobrist key of the pawns alone, and the tapered evaluation sums, all kept up to date like key
+    transient long pawnKey = 0L;
+    transient int middlegame = 0;
+    transient int endgame = 0;
+    transient int phase = 0;
 
     public ChessBoard() { }
 
@@ -24,7 +43,11 @@ public class ChessBoard implements Cloneable {
      * @param piece    the piece to add
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        squares[position.getRow()-1][position.getColumn()-1]  = piece;
+        int square = Bitboards.square(position);
+        clearSquare(square);
+        if(piece != null) {
+            setSquare(square, Bitboards.pieceIndex(piece.getTeamColor(), piece.getPieceType()));
+        }
     }
 
     /**
@@ -35,7 +58,11 @@ public class ChessBoard implements Cloneable {
      * position
      */
     public ChessPiece getPiece(ChessPosition position) {
-        return squares[position.getRow()-1][position.getColumn()-1];
+        int pieceIndex = pieceAt(Bitboards.square(position));
+        if(pieceIndex < 0) {
+            return null;
+        }
+        return ChessPiece.of(pieceIndex);
     }
 
     /**
@@ -44,16 +71,191 @@ public class ChessBoard implements Cloneable {
      * @param move The move to be executed
      */
     public void movePiece(ChessMove move) {
-        ChessPiece piece = getPiece(move.getStartPosition());
-        if(piece == null) {
+        int from = Bitboards.square(move.getStartPosition());
+        int to = Bitboards.square(move.getEndPosition());
+        int pieceIndex = pieceAt(from);
+        if(pieceIndex < 0) {
             return;
         }
         if(move.getPromotionPiece() != null) {
-            piece = new ChessPiece(piece.getTeamColor(), move.getPromotionPiece());
+            pieceIndex = Bitboards.pieceIndex(Bitboards.colorOf(pieceIndex), move.getPromotionPiece());
+        }
+
+        clearSquare(from);
+        clearSquare(to);
+        setSquare(to, pieceIndex);
+    }
+
+    /**
+     * @return the piece index on a square, or -1 if the square is empty
+     */
+    public int pieceAt(int square) {
+        long bit = Bitboards.bit(square);
+        if((occupied & bit) == 0) {
+            return -1;
+        }
+        int first = (colors[0] & bit) != 0 ? 0 : Bitboards.PIECE_TYPES;
+        for(int i = first; i < first + Bitboards.PIECE_TYPES; i++) {
+            if((pieces[i] & bit) != 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the bitboard of all pieces of one color and type
+     */
+    public long getBitboard(TeamColor color, PieceType type) {
+        return pieces[Bitboards.pieceIndex(color, type)];
+    }
+
+    /**
+     * @return the bitboard of all pieces of one color
+     */
+    public long getOccupancy(TeamColor color) {
+        return colors[color.ordinal()];
+    }
+
+    /**
+     * @return the bitboard of every occupied square
+     */
+    public long getOccupancy() {
+        return occupied;
+    }
+
+    /**
+     * Checks whether any piece of a team attacks a position, whether or
+     * not that piece could legally move there
+     *
+     * @param position the position to check
+     * @param byColor  the attacking team
+     * @return whether the position is attacked
+     */
+    public boolean isSquareAttacked(ChessPosition position, TeamColor byColor) {
+        return isSquareAttacked(Bitboards.square(position), byColor, occupied);
+    }
+
+    boolean isSquareAttacked(int square, TeamColor byColor, long occupancy) {
+        return (attackersTo(square, occupancy) & colors[byColor.ordinal()]) != 0;
+    }
+
+    /**
+     * @return every piece of either color attacking a square, treating the
+     * given bitboard as the occupied squares for sliding pieces
+     */
+    long attackersTo(int square, long occupancy) {
+        int white = TeamColor.WHITE.ordinal() * Bitboards.PIECE_TYPES;
+        int black = TeamColor.BLACK.ordinal() * Bitboards.PIECE_TYPES;
+        long queens = pieces[white + PieceType.QUEEN.ordinal()] | pieces[black + PieceType.QUEEN.ordinal()];
+        long rooks = pieces[white + PieceType.ROOK.ordinal()] | pieces[black + PieceType.ROOK.ordinal()] | queens;
+        long bishops = pieces[white + PieceType.BISHOP.ordinal()] | pieces[black + PieceType.BISHOP.ordinal()] | queens;
+
+        return (Attacks.pawnAttacks(TeamColor.BLACK, square) & pieces[white + PieceType.PAWN.ordinal()])
+                | (Attacks.pawnAttacks(TeamColor.WHITE, square) & pieces[black + PieceType.PAWN.ordinal()])
+                | (Attacks.knightAttacks(square)
+                        & (pieces[white + PieceType.KNIGHT.ordinal()] | pieces[black + PieceType.KNIGHT.ordinal()]))
+                | (Attacks.kingAttacks(square)
+                        & (pieces[white + PieceType.KING.ordinal()] | pieces[black + PieceType.KING.ordinal()]))
+                | (Attacks.bishopAttacks(square, occupancy) & bishops)
+                | (Attacks.rookAttacks(square, occupancy) & rooks);
+    }
+
+    /**
+     * Builds the attack map of a team: every square one of its pieces
+     * attacks, including squares occupied by its own pieces
+     *
+     * @param color the attacking team
+     * @return bitboard of attacked squares
+     */
+    public long getAttackMap(TeamColor color) {
+        int offset = color.ordinal() * Bitboards.PIECE_TYPES;
+        long attacks = 0L;
+        for(int pieceIndex = offset; pieceIndex < offset + Bitboards.PIECE_TYPES; pieceIndex++) {
+            PieceType type = Bitboards.typeOf(pieceIndex);
+            long bitboard = pieces[pieceIndex];
+            while(bitboard != 0) {
+                int square = Bitboards.firstSquare(bitboard);
+                attacks |= switch(type) {
+                    case KING -> Attacks.kingAttacks(square);
+                    case QUEEN -> Attacks.queenAttacks(square, occupied);
+                    case BISHOP -> Attacks.bishopAttacks(square, occupied);
+                    case KNIGHT -> Attacks.knightAttacks(square);
+                    case ROOK -> Attacks.rookAttacks(square, occupied);
+                    case PAWN -> Attacks.pawnAttacks(color, square);
+                };
+                bitboard &= bitboard - 1;
+            }
+        }
+        return attacks;
+    }
+
+    /**
+     * @return the Zobrist key of the pieces on this board, kept up to date
+     * as pieces are added, moved and removed
+     */
+    public long getKey() {
+        return key;
+    }
+
+    /**
+     * @return the Zobrist key of the pawns on this board alone
+     */
+    public long getPawnKey() {
+        return pawnKey;
+    }
+
+    /**
+     * @return the middlegame material and piece-square score, white minus black
+     */
+    public int getMiddlegameScore() {
+        return middlegame;
+    }
+
+    /**
+     * @return the endgame material and piece-square score, white minus black
+     */
+    public int getEndgameScore() {
+        return endgame;
+    }
+
+    /**
+     * @return the game phase, from {@link PieceSquareTables#MAX_PHASE} at the
+     * start down to 0 with only kings and pawns left
+     */
+    public int getPhase() {
+        return Math.min(phase, PieceSquareTables.MAX_PHASE);
+    }
+
+    void setSquare(int square, int pieceIndex) {
+        long bit = Bitboards.bit(square);
+        pieces[pieceIndex] |= bit;
+        colors[pieceIndex / Bitboards.PIECE_TYPES] |= bit;
+        occupied |= bit;
+        key ^= Zobrist.piece(pieceIndex, square);
+        updateScores(pieceIndex, square, 1);
+    }
+
+    void clearSquare(int square) {
+        int pieceIndex = pieceAt(square);
+        if(pieceIndex < 0) {
+            return;
         }
+        long mask = ~Bitboards.bit(square);
+        pieces[pieceIndex] &= mask;
+        colors[pieceIndex / Bitboards.PIECE_TYPES] &= mask;
+        occupied &= mask;
+        key ^= Zobrist.piece(pieceIndex, square);
+        updateScores(pieceIndex, square, -1);
+    }
 
-        addPiece(move.getEndPosition(), piece);
-        addPiece(move.getStartPosition(), null);
+    private void updateScores(int pieceIndex, int square, int sign) {
+        if(Bitboards.typeOf(pieceIndex) == PieceType.PAWN) {
+            pawnKey ^= Zobrist.piece(pieceIndex, square);
+        }
+        middlegame += sign * PieceSquareTables.middlegame(pieceIndex, square);
+        endgame += sign * PieceSquareTables.endgame(pieceIndex, square);
+        phase += sign * PieceSquareTables.phase(pieceIndex);
     }
 
     /**
@@ -64,11 +266,14 @@ public class ChessBoard implements Cloneable {
      * piece is at that position
      */
     public TeamColor getPieceColor(ChessPosition position) {
-        ChessPiece piece = getPiece(position);
-        if(piece == null) {
-            return null;
+        long bit = Bitboards.bit(Bitboards.square(position));
+        if((colors[0] & bit) != 0) {
+            return TeamColor.WHITE;
+        }
+        if((colors[1] & bit) != 0) {
+            return TeamColor.BLACK;
         }
-        return piece.getTeamColor();
+        return null;
     }
 
     /**
@@ -93,53 +298,56 @@ public class ChessBoard implements Cloneable {
      * (How the game of chess normally starts)
      */
     public void resetBoard() {
-        //White side
-        squares[0][0] = new ChessPiece(TeamColor.WHITE, PieceType.ROOK);
-        squares[0][1] = new ChessPiece(TeamColor.WHITE, PieceType.KNIGHT);
-        squares[0][2] = new ChessPiece(TeamColor.WHITE, PieceType.BISHOP);
-        squares[0][3] = new ChessPiece(TeamColor.WHITE, PieceType.QUEEN);
-        squares[0][4] = new ChessPiece(TeamColor.WHITE, PieceType.KING);
-        squares[0][5] = new ChessPiece(TeamColor.WHITE, PieceType.BISHOP);
-        squares[0][6] = new ChessPiece(TeamColor.WHITE, PieceType.KNIGHT);
-        squares[0][7] = new ChessPiece(TeamColor.WHITE, PieceType.ROOK);
-
-        //Black side
-        squares[7][0] = new ChessPiece(TeamColor.BLACK, PieceType.ROOK);
-        squares[7][1] = new ChessPiece(TeamColor.BLACK, PieceType.KNIGHT);
-        squares[7][2] = new ChessPiece(TeamColor.BLACK, PieceType.BISHOP);
-        squares[7][3] = new ChessPiece(TeamColor.BLACK, PieceType.QUEEN);
-        squares[7][4] = new ChessPiece(TeamColor.BLACK, PieceType.KING);
-        squares[7][5] = new ChessPiece(TeamColor.BLACK, PieceType.BISHOP);
-        squares[7][6] = new ChessPiece(TeamColor.BLACK, PieceType.KNIGHT);
-        squares[7][7] = new ChessPiece(TeamColor.BLACK, PieceType.ROOK);
-
-        //Pawns
-        for(int i = 0; i < 8; i++) {
-            squares[1][i] = new ChessPiece(TeamColor.WHITE, PieceType.PAWN);
-            squares[6][i] = new ChessPiece(TeamColor.BLACK, PieceType.PAWN);
-        }
+        clear();
 
-        //No Man's Land
+        PieceType[] backRow = {
+                PieceType.ROOK, PieceType.KNIGHT, PieceType.BISHOP, PieceType.QUEEN,
+                PieceType.KING, PieceType.BISHOP, PieceType.KNIGHT, PieceType.ROOK
+        };
         for(int i = 0; i < 8; i++) {
-            for(int j = 2; j < 6; j++) {
-                squares[j][i] = null;
-            }
+            //White side
+            setSquare(Bitboards.square(1, i+1), Bitboards.pieceIndex(TeamColor.WHITE, backRow[i]));
+            setSquare(Bitboards.square(2, i+1), Bitboards.pieceIndex(TeamColor.WHITE, PieceType.PAWN));
+
+            //Black side
+            setSquare(Bitboards.square(8, i+1), Bitboards.pieceIndex(TeamColor.BLACK, backRow[i]));
+            setSquare(Bitboards.square(7, i+1), Bitboards.pieceIndex(TeamColor.BLACK, PieceType.PAWN));
         }
     }
 
+    private void clear() {
+        Arrays.fill(pieces, 0L);
+        Arrays.fill(colors, 0L);
+        occupied = 0L;
+        key = 0L;
+        pawnKey = 0L;
+        middlegame = 0;
+        endgame = 0;
+        phase = 0;
+    }
+
     @Override
     public ChessBoard clone() {
         ChessBoard chessBoard = new ChessBoard();
-
-        for(int i = 0; i < 8; i++) {
-            for(int j = 0; j < 8; j++) {
-                chessBoard.squares[i][j] = this.squares[i][j];
-            }
-        }
-
+        chessBoard.copyFrom(this);
         return chessBoard;
     }
 
+    /**
+     * Overwrites this board with the pieces of another board
+     */
+    void copyFrom(ChessBoard other) {
+        System.arraycopy(other.pieces, 0, pieces, 0, Bitboards.PIECE_KINDS);
+        colors[0] = other.colors[0];
+        colors[1] = other.colors[1];
+        occupied = other.occupied;
+        key = other.key;
+        pawnKey = other.pawnKey;
+        middlegame = other.middlegame;
+        endgame = other.endgame;
+        phase = other.phase;
+    }
+
     @Override
     public final boolean equals(Object o) {
         if (this == o) {
@@ -149,18 +357,106 @@ public class ChessBoard implements Cloneable {
             return false;
         }
 
-        return Arrays.deepEquals(squares, that.squares);
+        return Arrays.equals(pieces, that.pieces);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(squares);
+        return Long.hashCode(key);
     }
 
     @Override
     public String toString() {
-        return "ChessBoard{" +
-                "squares=" + Arrays.toString(squares) +
-                '}';
+        StringBuilder builder = new StringBuilder("ChessBoard{\n");
+        for(int row = 8; row >= 1; row--) {
+            builder.append('|');
+            for(int col = 1; col <= 8; col++) {
+                int pieceIndex = pieceAt(Bitboards.square(row, col));
+                builder.append(pieceIndex < 0 ? ' ' : PIECE_CHARS.charAt(pieceIndex));
+                builder.append('|');
+            }
+            builder.append('\n');
+        }
+        return builder.append('}').toString();
+    }
+
+    /**
+     * Writes a board as its piece placement, and reads that or either of
+     * the older layouts: the square array of the original board, or the
+     * raw bitboards. The bitboards and everything derived from them are
+     * rebuilt square by square, so a board always reads back consistent.
+     */
+    static final class Adapter extends TypeAdapter<ChessBoard> {
+        private final ChessPiece.Adapter pieceAdapter = new ChessPiece.Adapter();
+
+        @Override
+        public void write(JsonWriter out, ChessBoard board) throws IOException {
+            if(board == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("placement").value(Fen.writePlacement(board));
+            out.endObject();
+        }
+
+        @Override
+        public ChessBoard read(JsonReader in) throws IOException {
+            if(in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            ChessBoard board = new ChessBoard();
+            in.beginObject();
+            while(in.hasNext()) {
+                switch(in.nextName()) {
+                    case "placement" -> board = readPlacement(in.nextString());
+                    case "squares" -> readSquares(in, board);
+                    case "pieces" -> readPieces(in, board);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return board;
+        }
+
+        private static ChessBoard readPlacement(String placement) {
+            try {
+                return Fen.parsePlacement(placement);
+            }
+            catch(IllegalArgumentException e) {
+                throw new JsonSyntaxException(e.getMessage(), e);
+            }
+        }
+
+        private void readSquares(JsonReader in, ChessBoard board) throws IOException {
+            in.beginArray();
+            for(int row = 1; in.hasNext(); row++) {
+                in.beginArray();
+                for(int col = 1; in.hasNext(); col++) {
+                    ChessPiece piece = pieceAdapter.read(in);
+                    if(piece != null && piece.getTeamColor() != null && piece.getPieceType() != null
+                            && row <= 8 && col <= 8) {
+                        board.addPiece(ChessPosition.of(row, col), piece);
+                    }
+                }
+                in.endArray();
+            }
+            in.endArray();
+        }
+
+        private static void readPieces(JsonReader in, ChessBoard board) throws IOException {
+            in.beginArray();
+            for(int pieceIndex = 0; in.hasNext(); pieceIndex++) {
+                long bitboard = in.nextLong();
+                while(pieceIndex < Bitboards.PIECE_KINDS && bitboard != 0) {
+                    int square = Bitboards.firstSquare(bitboard);
+                    board.clearSquare(square);
+                    board.setSquare(square, pieceIndex);
+                    bitboard &= bitboard - 1;
+                }
+            }
+            in.endArray();
+        }
     }
 }
@@ -1,32 +1,66 @@
 package chess;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Objects;
-import java.lang.Math;
-
+import chess.ChessPiece.PieceType;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+@JsonAdapter(ChessGame.Adapter.class)
 public class ChessGame {
 
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+    public static final int ALL_CASTLING = WHITE_KINGSIDE | WHITE_QUEENSIDE | BLACK_KINGSIDE | BLACK_QUEENSIDE;
+
+    //Castling rights that survive a move touching each square
+    private static final int[] CASTLING_MASK = new int[64];
+    static {
+        Arrays.fill(CASTLING_MASK, ALL_CASTLING);
+        CASTLING_MASK[Bitboards.square(1, 5)] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_MASK[Bitboards.square(1, 8)] &= ~WHITE_KINGSIDE;
+        CASTLING_MASK[Bitboards.square(1, 1)] &= ~WHITE_QUEENSIDE;
+        CASTLING_MASK[Bitboards.square(8, 5)] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_MASK[Bitboards.square(8, 8)] &= ~BLACK_KINGSIDE;
+        CASTLING_MASK[Bitboards.square(8, 1)] &= ~BLACK_QUEENSIDE;
+    }
+
     private TeamColor teamTurn = TeamColor.WHITE;
     private ChessBoard gameBoard;
 
-    private Castler castler;
-    private EnPassanter enPassanter;
+    private int castlingRights;
+    private int enPassantSquare = -1;
+
+    //Undo records for every move made on this game, most recent last
+    private transient int[] undoMoves;
+    private transient int[] undoStates;
+    private transient int undoCount;
+
+    //Status of the team to move, valid while the position key is statusKey
+    private transient GameStatus status;
+    private transient long statusKey;
 
     public ChessGame() {
         gameBoard = new ChessBoard();
         gameBoard.resetBoard();
-
-        castler = new Castler();
-        enPassanter = new EnPassanter();
+        castlingRights = ALL_CASTLING;
     }
 
     public ChessGame(ChessGame other) {
         this.teamTurn = other.teamTurn;
         this.gameBoard = other.gameBoard.clone();
-
-        castler = new Castler(other.castler);
-        enPassanter = new EnPassanter(other.enPassanter);
+        this.castlingRights = other.castlingRights;
+        this.enPassantSquare = other.enPassantSquare;
     }
 
     public TeamColor getTeamTurn() {
@@ -48,7 +82,24 @@ public class ChessGame {
 
     public enum TeamColor {
         WHITE,
-        BLACK
+        BLACK;
+
+        /**
+         * @return the other team
+         */
+        public TeamColor opponent() {
+            return this == WHITE ? BLACK : WHITE;
+        }
+    }
+
+    /**
+     * Where the game stands for the team to move
+     */
+    public enum GameStatus {
+        ONGOING,
+        CHECK,
+        CHECKMATE,
+        STALEMATE
     }
 
     public Collection<ChessMove> validMoves(ChessPosition startPosition) {
@@ -57,127 +108,398 @@ public class ChessGame {
             return null;
         }
 
-        Collection<ChessMove> moves;
-        moves = gameBoard.getPieceMoves(startPosition);
-        moves.addAll(enPassanter.getEnPassantMoves(startPosition));
-        moves.addAll(castler.validCastleMoves(startPosition));
+        MoveList moves = new MoveList(32);
+        MoveGenerator.legalMoves(gameBoard, pieceColor, castlingRights, enPassantSquare,
+                Bitboards.bit(Bitboards.square(startPosition)), moves);
+        return toChessMoves(moves, new HashSet<>());
+    }
 
-        Collection<ChessMove> invalidMoves = new HashSet<ChessMove>();
-        for(ChessMove move : moves) {
-            ChessBoard trueBoard = gameBoard.clone();
+    /**
+     * Gets every legal move for a team, computing its pinned pieces and
+     * checking pieces once for the whole position
+     *
+     * @param teamColor which team to get moves for
+     * @return Collection of legal moves
+     */
+    public Collection<ChessMove> legalMoves(TeamColor teamColor) {
+        MoveList moves = new MoveList();
+        MoveGenerator.legalMoves(gameBoard, teamColor, castlingRights, enPassantSquare, ~0L, moves);
+        return toChessMoves(moves, new ArrayList<>());
+    }
 
-            gameBoard.movePiece(move);
-            if(isInCheck(pieceColor)) {
-                invalidMoves.add(move);
-            }
+    /**
+     * Replaces the contents of a move list with the packed legal moves of
+     * the team to move
+     *
+     * @param moves the list to fill
+     */
+    public void legalMoves(MoveList moves) {
+        moves.clear();
+        MoveGenerator.legalMoves(gameBoard, teamTurn, castlingRights, enPassantSquare, ~0L, moves);
+    }
+
+    /**
+     * Replaces the contents of a move list with the legal captures, en
+     * passant captures and promotions of the team to move
+     *
+     * @param moves the list to fill
+     */
+    public void noisyMoves(MoveList moves) {
+        moves.clear();
+        MoveGenerator.legalMoves(gameBoard, teamTurn, castlingRights, enPassantSquare, ~0L,
+                MoveGenerator.NOISY, moves);
+    }
+
+    /**
+     * Replaces the contents of a move list with the legal moves of the team
+     * to move that are not captures or promotions
+     *
+     * @param moves the list to fill
+     */
+    public void quietMoves(MoveList moves) {
+        moves.clear();
+        MoveGenerator.legalMoves(gameBoard, teamTurn, castlingRights, enPassantSquare, ~0L,
+                MoveGenerator.QUIET, moves);
+    }
 
-            gameBoard = trueBoard;
+    /**
+     * Checks a packed move that may not come from this position, such as
+     * one remembered from another part of a search
+     *
+     * @param move    the move to check
+     * @param scratch a list to generate into, so the check allocates nothing
+     * @return whether the move is legal for the team to move
+     */
+    public boolean isLegal(int move, MoveList scratch) {
+        int pieceIndex = gameBoard.pieceAt(Move.from(move));
+        if(pieceIndex < 0 || Bitboards.colorOf(pieceIndex) != teamTurn) {
+            return false;
         }
+        scratch.clear();
+        MoveGenerator.legalMoves(gameBoard, teamTurn, castlingRights, enPassantSquare,
+                Bitboards.bit(Move.from(move)), scratch);
+        return scratch.contains(move);
+    }
 
-        moves.removeAll(invalidMoves);
-        return moves;
+    private static Collection<ChessMove> toChessMoves(MoveList moves, Collection<ChessMove> chessMoves) {
+        for(int i = 0; i < moves.size(); i++) {
+            chessMoves.add(Move.toChessMove(moves.get(i)));
+        }
+        return chessMoves;
     }
 
     public void makeMove(ChessMove move) throws InvalidMoveException {
-        Collection<ChessMove> validMoves = validMoves(move.getStartPosition());
-        if(validMoves == null || !validMoves.contains(move)) {
+        TeamColor pieceColor = gameBoard.getPieceColor(move.getStartPosition());
+        if(pieceColor == null) {
             throw new InvalidMoveException();
         }
 
-        if(gameBoard.getPieceColor(move.getStartPosition()) != teamTurn) {
+        MoveList moves = new MoveList(32);
+        MoveGenerator.legalMoves(gameBoard, pieceColor, castlingRights, enPassantSquare,
+                Bitboards.bit(Bitboards.square(move.getStartPosition())), moves);
+        int packedMove = Move.NONE;
+        for(int i = 0; i < moves.size(); i++) {
+            if(Move.matches(moves.get(i), move)) {
+                packedMove = moves.get(i);
+            }
+        }
+        if(packedMove == Move.NONE) {
             throw new InvalidMoveException();
         }
 
-        if(enPassanter.getEnPassantMoves(move.getStartPosition()).contains(move)) {
-            enPassanter.executeEnPassant(move);
-        }
-        if(castler.validCastleMoves(move.getStartPosition()).contains(move)) {
-            castler.executeCastle(move);
+        if(pieceColor != teamTurn) {
+            throw new InvalidMoveException();
         }
 
-        gameBoard.movePiece(move);
-        enPassanter.checkEnPassantOpportunities(move);
-        castler.checkIfKingOrRookMoved(move);
-        updateTeamTurn();
+        makeMove(packedMove);
     }
 
-    private ChessPosition findKing(TeamColor teamColor) {
-        for(int i = 1; i <= 8; i++) {
-            for(int j = 1; j <= 8; j++) {
-                ChessPosition position = new ChessPosition(i,j);
-                ChessPiece piece = gameBoard.getPiece(position);
-                if(piece != null
-                        && piece.getPieceType() == ChessPiece.PieceType.KING
-                        && piece.getTeamColor() == teamColor) {
-                    return position;
-                }
+    /**
+     * Executes a packed move in place without checking its legality,
+     * recording what is needed to take it back with {@link #unmakeMove()}.
+     * The move must come from this game's move generator.
+     *
+     * @param move the packed move to make
+     * @throws IllegalArgumentException if the move castles without a rook to move
+     */
+    public void makeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flag = Move.flag(move);
+        int pieceIndex = gameBoard.pieceAt(from);
+        TeamColor color = Bitboards.colorOf(pieceIndex);
+
+        int captured;
+        if(flag == Move.EN_PASSANT) {
+            int captureSquare = captureSquare(from, to);
+            captured = gameBoard.pieceAt(captureSquare);
+            gameBoard.clearSquare(captureSquare);
+        }
+        else {
+            captured = gameBoard.pieceAt(to);
+            gameBoard.clearSquare(to);
+        }
+        if(flag == Move.CASTLE) {
+            int rookFrom = castleRookFrom(to);
+            int rookTo = castleRookTo(to);
+            if(gameBoard.pieceAt(rookFrom) != Bitboards.pieceIndex(color, PieceType.ROOK)) {
+                throw new IllegalArgumentException("No rook to castle with: " + Move.toString(move));
             }
+            gameBoard.clearSquare(rookFrom);
+            gameBoard.setSquare(rookTo, Bitboards.pieceIndex(color, PieceType.ROOK));
         }
-        return new ChessPosition(0,0);
-    }
 
-    private Collection<ChessMove> allMoves() {
-        Collection<ChessMove> allMoves = new HashSet<>();
+        pushUndo(move, (captured + 1) | castlingRights << 4 | (enPassantSquare + 1) << 8);
 
-        for(int i = 1; i <= 8; i++) {
-            for(int j = 1; j <= 8; j++) {
+        gameBoard.clearSquare(from);
+        PieceType promotion = Move.promotion(move);
+        gameBoard.setSquare(to, promotion == null ? pieceIndex : Bitboards.pieceIndex(color, promotion));
 
-                Collection<ChessMove> moves = gameBoard.getPieceMoves(new ChessPosition(i,j));
-                if(moves != null) {
-                    allMoves.addAll(moves);
-                }
+        castlingRights &= CASTLING_MASK[from] & CASTLING_MASK[to];
+        enPassantSquare = -1;
+        if(Bitboards.typeOf(pieceIndex) == PieceType.PAWN && Math.abs(to - from) == 16) {
+            int passedSquare = (from + to) / 2;
+            if((Attacks.pawnAttacks(color, passedSquare) & gameBoard.getBitboard(color.opponent(), PieceType.PAWN)) != 0) {
+                enPassantSquare = passedSquare;
             }
         }
+        updateTeamTurn();
+    }
 
-        return allMoves;
+    /**
+     * Passes the turn without moving, as a search does to see whether a
+     * position is so good that even a free move for the opponent does not
+     * spoil it. Take it back with {@link #unmakeMove()}.
+     */
+    public void makeNullMove() {
+        pushUndo(Move.NONE, castlingRights << 4 | (enPassantSquare + 1) << 8);
+        enPassantSquare = -1;
+        updateTeamTurn();
     }
 
-    public boolean isInCheck(TeamColor teamColor) {
-        ChessPosition kingPosition = findKing(teamColor);
-        Collection<ChessMove> allMoves = allMoves();
+    /**
+     * Takes back the most recent move made on this game, restoring the
+     * board, castling rights, en passant square and turn
+     *
+     * @throws IllegalStateException if there is no move to take back
+     */
+    public void unmakeMove() {
+        if(undoCount == 0) {
+            throw new IllegalStateException("No move to unmake");
+        }
+        undoCount--;
+        int move = undoMoves[undoCount];
+        int state = undoStates[undoCount];
+        updateTeamTurn();
+        if(move == Move.NONE) {
+            enPassantSquare = ((state >>> 8) & 0x7F) - 1;
+            return;
+        }
 
-        for(ChessMove move : allMoves) {
-            if(move.getEndPosition().equals(kingPosition)) {
-                return true;
-            }
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flag = Move.flag(move);
+        int pieceIndex = gameBoard.pieceAt(to);
+        TeamColor color = Bitboards.colorOf(pieceIndex);
+        if(Move.isPromotion(move)) {
+            pieceIndex = Bitboards.pieceIndex(color, PieceType.PAWN);
         }
-        return false;
+        gameBoard.clearSquare(to);
+        gameBoard.setSquare(from, pieceIndex);
+
+        int captured = (state & 0xF) - 1;
+        if(captured >= 0) {
+            gameBoard.setSquare(flag == Move.EN_PASSANT ? captureSquare(from, to) : to, captured);
+        }
+        if(flag == Move.CASTLE) {
+            gameBoard.clearSquare(castleRookTo(to));
+            gameBoard.setSquare(castleRookFrom(to), Bitboards.pieceIndex(color, PieceType.ROOK));
+        }
+
+        castlingRights = (state >>> 4) & 0xF;
+        enPassantSquare = ((state >>> 8) & 0x7F) - 1;
     }
 
-    private boolean hasNoMoves(TeamColor teamColor) {
-        boolean thereAreNoMoves = true;
+    /**
+     * @return the last move made on this game that has not been taken
+     * back, or {@link Move#NONE} if there is none or it was a null move
+     */
+    public int lastMove() {
+        return undoCount == 0 ? Move.NONE : undoMoves[undoCount - 1];
+    }
 
-        for(int i = 1; i <= 8; i++) {
+    private void pushUndo(int move, int state) {
+        if(undoMoves == null) {
+            undoMoves = new int[64];
+            undoStates = new int[64];
+        }
+        else if(undoCount == undoMoves.length) {
+            undoMoves = Arrays.copyOf(undoMoves, undoCount * 2);
+            undoStates = Arrays.copyOf(undoStates, undoCount * 2);
+        }
+        undoMoves[undoCount] = move;
+        undoStates[undoCount] = state;
+        undoCount++;
+    }
 
-            for(int j = 1; j <= 8; j++) {
+    /**
+     * @return the square of the pawn taken by an en passant capture
+     */
+    private static int captureSquare(int from, int to) {
+        return Bitboards.square(Bitboards.row(from), Bitboards.column(to));
+    }
 
-                ChessPosition position = new ChessPosition(i,j);
-                TeamColor positionColor = gameBoard.getPieceColor(position);
-                if(positionColor == teamColor) {
+    /**
+     * @return where the rook starts for a castle that puts the king on the
+     * given square
+     */
+    private static int castleRookFrom(int kingTo) {
+        return (Bitboards.column(kingTo) == 7) ? kingTo + 1 : kingTo - 2;
+    }
 
-                    Collection<ChessMove> moves = validMoves(position);
-                    if(moves != null && !moves.isEmpty()) {
-                        thereAreNoMoves = false;
-                    }
-                }
-            }
+    /**
+     * @return where the rook ends for a castle that puts the king on the
+     * given square
+     */
+    private static int castleRookTo(int kingTo) {
+        return (Bitboards.column(kingTo) == 7) ? kingTo - 1 : kingTo + 1;
+    }
+
+    private boolean isAttacked(int square, TeamColor byColor) {
+        return gameBoard.isSquareAttacked(square, byColor, gameBoard.getOccupancy());
+    }
+
+    public boolean isInCheck(TeamColor teamColor) {
+        long king = gameBoard.getBitboard(teamColor, PieceType.KING);
+        if(king == 0) {
+            return false;
         }
+        return isAttacked(Bitboards.firstSquare(king), teamColor.opponent());
+    }
 
-        return thereAreNoMoves;
+    private boolean hasNoMoves(TeamColor teamColor) {
+        return !MoveGenerator.hasLegalMove(gameBoard, teamColor, castlingRights, enPassantSquare);
+    }
+
+    /**
+     * Counts the leaf positions of the legal move tree, which checks the
+     * move generator against published counts
+     *
+     * @param depth how many moves deep to count
+     * @return the number of positions reached after exactly depth moves
+     */
+    public long perft(int depth) {
+        return Perft.perft(this, depth);
+    }
+
+    /**
+     * Counts the leaf positions under each legal move, which narrows down
+     * where a perft count goes wrong
+     *
+     * @param depth how many moves deep to count, including the first move
+     * @return the count for each legal move
+     */
+    public Map<ChessMove, Long> divide(int depth) {
+        return Perft.divide(this, depth, 1, 0);
     }
 
     public boolean isInCheckmate(TeamColor teamColor) {
+        if(teamColor == teamTurn) {
+            return getGameStatus() == GameStatus.CHECKMATE;
+        }
         return isInCheck(teamColor) && hasNoMoves(teamColor);
     }
 
     public boolean isInStalemate(TeamColor teamColor) {
+        if(teamColor == teamTurn) {
+            return getGameStatus() == GameStatus.STALEMATE;
+        }
         return !isInCheck(teamColor) && hasNoMoves(teamColor);
     }
 
+    /**
+     * Gets the status of the team to move. It is worked out once per
+     * position and reused until a move or a new board changes the position.
+     *
+     * @return whether the team to move is in check, checkmate or stalemate
+     */
+    public GameStatus getGameStatus() {
+        long key = zobristKey();
+        if(status == null || statusKey != key) {
+            boolean inCheck = isInCheck(teamTurn);
+            if(hasNoMoves(teamTurn)) {
+                status = inCheck ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+            }
+            else {
+                status = inCheck ? GameStatus.CHECK : GameStatus.ONGOING;
+            }
+            statusKey = key;
+        }
+        return status;
+    }
+
     public void setBoard(ChessBoard board) {
         gameBoard = board;
-        castler = new Castler();
-        enPassanter = new EnPassanter();
+        castlingRights = homeCastlingRights();
+        enPassantSquare = -1;
+        undoCount = 0;
+    }
+
+    /**
+     * Sets up a position, keeping only the castling rights whose king and
+     * rook are on their home squares, and the en passant square only if a
+     * pawn of the team to move could capture onto it
+     *
+     * @param castlingRights  a combination of the castling constants on this class
+     * @param enPassantSquare the square index an en passant capture would
+     *                        land on, or -1 for none
+     */
+    public void setPosition(ChessBoard board, TeamColor turn, int castlingRights, int enPassantSquare) {
+        gameBoard = board;
+        teamTurn = turn;
+        this.castlingRights = castlingRights & homeCastlingRights();
+        this.enPassantSquare = -1;
+        if(enPassantSquare >= 0
+                && (Attacks.pawnAttacks(turn.opponent(), enPassantSquare) & board.getBitboard(turn, PieceType.PAWN)) != 0) {
+            this.enPassantSquare = enPassantSquare;
+        }
+        undoCount = 0;
+    }
+
+    /**
+     * @return the castling rights the kings and rooks on their home squares allow
+     */
+    private int homeCastlingRights() {
+        int rights = 0;
+        if(hasPiece(1, 5, TeamColor.WHITE, PieceType.KING)) {
+            rights |= hasPiece(1, 8, TeamColor.WHITE, PieceType.ROOK) ? WHITE_KINGSIDE : 0;
+            rights |= hasPiece(1, 1, TeamColor.WHITE, PieceType.ROOK) ? WHITE_QUEENSIDE : 0;
+        }
+        if(hasPiece(8, 5, TeamColor.BLACK, PieceType.KING)) {
+            rights |= hasPiece(8, 8, TeamColor.BLACK, PieceType.ROOK) ? BLACK_KINGSIDE : 0;
+            rights |= hasPiece(8, 1, TeamColor.BLACK, PieceType.ROOK) ? BLACK_QUEENSIDE : 0;
+        }
+        return rights;
+    }
+
+    private boolean hasPiece(int row, int col, TeamColor color, PieceType type) {
+        return (gameBoard.getBitboard(color, type) & Bitboards.bit(Bitboards.square(row, col))) != 0;
+    }
+
+    /**
+     * @return the castling rights still available, as a combination of
+     * the castling constants on this class
+     */
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    /**
+     * @return the square a pawn could move to by capturing en passant,
+     * or null if there is none
+     */
+    public ChessPosition getEnPassantPosition() {
+        return enPassantSquare < 0 ? null : Bitboards.position(enPassantSquare);
     }
 
     public ChessBoard getBoard() {
@@ -192,301 +514,164 @@ public class ChessGame {
             return false;
         }
 
-        return teamTurn == chessGame.teamTurn && Objects.equals(gameBoard, chessGame.gameBoard);
+        return teamTurn == chessGame.teamTurn
+                && castlingRights == chessGame.castlingRights
+                && enPassantSquare == chessGame.enPassantSquare
+                && Objects.equals(gameBoard, chessGame.gameBoard);
     }
 
     public int hashCode() {
-        int result = Objects.hashCode(teamTurn);
-        result = 31 * result + Objects.hashCode(gameBoard);
-        return result;
-    }
-
-    private class Castler {
-
-        public final static ChessPiece WHITE_KING = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING);
-        public final static ChessPiece BLACK_KING = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING);
-        public final static ChessPiece WHITE_ROOK = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK);
-        public final static ChessPiece BLACK_ROOK = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK);
-
-        public final static ChessPosition WHITE_KING_START = new ChessPosition(1,5);
-        public final static ChessPosition BLACK_KING_START = new ChessPosition(8,5);
-        public final static ChessPosition WHITE_LEFT_ROOK_START = new ChessPosition(1,1);
-        public final static ChessPosition WHITE_RIGHT_ROOK_START = new ChessPosition(1,8);
-        public final static ChessPosition BLACK_LEFT_ROOK_START = new ChessPosition(8,1);
-        public final static ChessPosition BLACK_RIGHT_ROOK_START = new ChessPosition(8,8);
-
-        public final static ChessMove WHITE_LEFT_CASTLE = new ChessMove(WHITE_KING_START, new ChessPosition(1,3), null);
-        public final static ChessMove WHITE_RIGHT_CASTLE = new ChessMove(WHITE_KING_START, new ChessPosition(1,7), null);
-        public final static ChessMove BLACK_LEFT_CASTLE = new ChessMove(BLACK_KING_START, new ChessPosition(8,3), null);
-        public final static ChessMove BLACK_RIGHT_CASTLE = new ChessMove(BLACK_KING_START, new ChessPosition(8,7), null);
-
-        private boolean whiteKingHasMoved = false;
-        private boolean blackKingHasMoved = false;
-        private boolean whiteLeftRookHasMoved = false;
-        private boolean whiteRightRookHasMoved = false;
-        private boolean blackLeftRookHasMoved = false;
-        private boolean blackRightRookHasMoved = false;
-
-        public Castler() {}
-
-        public Castler(Castler other) {
-            this.whiteKingHasMoved = other.whiteKingHasMoved;
-            this.blackKingHasMoved = other.blackKingHasMoved;
-            this.whiteRightRookHasMoved = other.whiteRightRookHasMoved;
-            this.whiteLeftRookHasMoved = other.whiteLeftRookHasMoved;
-            this.blackRightRookHasMoved = other.blackRightRookHasMoved;
-            this.blackLeftRookHasMoved = other.blackLeftRookHasMoved;
-        }
-
-        public void checkIfKingOrRookMoved(ChessMove move) {
-            if(move.getStartPosition().equals(WHITE_KING_START)) {
-                whiteKingHasMoved = true;
-            }
-            if(move.getStartPosition().equals(BLACK_KING_START)) {
-                blackKingHasMoved = true;
-            }
-            if(move.getStartPosition().equals(WHITE_LEFT_ROOK_START)) {
-                whiteLeftRookHasMoved = true;
-            }
-            if(move.getStartPosition().equals(WHITE_RIGHT_ROOK_START)) {
-                whiteRightRookHasMoved = true;
-            }
-            if(move.getStartPosition().equals(BLACK_LEFT_ROOK_START)) {
-                blackLeftRookHasMoved = true;
-            }
-            if(move.getStartPosition().equals(BLACK_RIGHT_ROOK_START)) {
-                blackRightRookHasMoved = true;
-            }
-        }
-
-        public Collection<ChessMove> validCastleMoves(ChessPosition startPosition) {
-            if(startPosition.equals(WHITE_KING_START)
-                    && !whiteKingHasMoved
-                    && ChessGame.this.gameBoard.getPiece(WHITE_KING_START) != null
-                    && ChessGame.this.gameBoard.getPiece(WHITE_KING_START).equals(WHITE_KING)) {
-
-                return validWhiteCastleMoves();
-            }
-
-            if(startPosition.equals(BLACK_KING_START)
-                    && !blackKingHasMoved
-                    && ChessGame.this.gameBoard.getPiece(BLACK_KING_START) != null
-                    && ChessGame.this.gameBoard.getPiece(BLACK_KING_START).equals(BLACK_KING)) {
-                return validBlackCastleMoves();
-            }
+        return Long.hashCode(zobristKey());
+    }
 
-            return new HashSet<>();
+    /**
+     * Gets a 64-bit key identifying this position: the pieces, the team to
+     * move, the castling rights and the en passant column. Equal positions
+     * always have equal keys, and different positions almost never do.
+     *
+     * @return the Zobrist key of the position
+     */
+    public long zobristKey() {
+        long key = gameBoard.getKey() ^ Zobrist.castling(castlingRights) ^ Zobrist.enPassant(enPassantSquare);
+        if(teamTurn == TeamColor.WHITE) {
+            key ^= Zobrist.whiteToMove();
         }
+        return key;
+    }
 
-        private Collection<ChessMove> validWhiteCastleMoves() {
-            Collection<ChessMove> moves = new HashSet<ChessMove>();
-
-            if(!whiteLeftRookHasMoved
-                    && ChessGame.this.gameBoard.getPiece(WHITE_LEFT_ROOK_START) != null
-                    && ChessGame.this.gameBoard.getPiece(WHITE_LEFT_ROOK_START).equals(WHITE_ROOK)
-                    && ChessGame.this.gameBoard.getPiece(new ChessPosition(1,2)) == null
-                    && ChessGame.this.gameBoard.getPiece(new ChessPosition(1,3)) == null
-                    && ChessGame.this.gameBoard.getPiece(new ChessPosition(1,4)) == null) {
-                boolean canCastle = true;
-                ChessBoard trueBoard = ChessGame.this.gameBoard.clone();
-
-                if(isInCheck(TeamColor.WHITE)) {
-                    canCastle = false;
-                }
-                ChessGame.this.gameBoard.movePiece(new ChessMove(WHITE_KING_START, new ChessPosition(1,4), null));
-                if(isInCheck(TeamColor.WHITE)) {
-                    canCastle = false;
-                }
-                ChessGame.this.gameBoard.movePiece(new ChessMove(new ChessPosition(1,4), new ChessPosition(1,3), null));
-                if(isInCheck(TeamColor.WHITE)) {
-                    canCastle = false;
-                }
-
-                if(canCastle) {
-                    moves.add(WHITE_LEFT_CASTLE);
-                }
-                ChessGame.this.gameBoard = trueBoard;
-            }
-
-            if(!whiteRightRookHasMoved
-                    && ChessGame.this.gameBoard.getPiece(WHITE_RIGHT_ROOK_START) != null
-                    && ChessGame.this.gameBoard.getPiece(WHITE_RIGHT_ROOK_START).equals(WHITE_ROOK)
-                    && ChessGame.this.gameBoard.getPiece(new ChessPosition(1,6)) == null
-                    && ChessGame.this.gameBoard.getPiece(new ChessPosition(1,7)) == null) {
-                boolean canCastle = true;
-                ChessBoard trueBoard = ChessGame.this.gameBoard.clone();
-
-                if(isInCheck(TeamColor.WHITE)) {
-                    canCastle = false;
-                }
-                ChessGame.this.gameBoard.movePiece(new ChessMove(WHITE_KING_START, new ChessPosition(1,6), null));
-                if(isInCheck(TeamColor.WHITE)) {
-                    canCastle = false;
-                }
-                ChessGame.this.gameBoard.movePiece(new ChessMove(new ChessPosition(1,6), new ChessPosition(1,7), null));
-                if(isInCheck(TeamColor.WHITE)) {
-                    canCastle = false;
-                }
+    /**
+     * Gets the key Polyglot opening books use for this position, so books
+     * made by other tools can be read
+     *
+     * @return the Polyglot key of the position
+     */
+    public long polyglotKey() {
+        return Polyglot.key(gameBoard, teamTurn, castlingRights, enPassantSquare);
+    }
 
-                if(canCastle) {
-                    moves.add(WHITE_RIGHT_CASTLE);
-                }
-                ChessGame.this.gameBoard = trueBoard;
+    /**
+     * Writes a game as its turn, board, castling rights and en passant
+     * square. Games saved before those last two existed kept a castler
+     * recording which kings and rooks had moved and an en passant helper
+     * holding the possible captures, so those are read back into rights
+     * and a square. A game with neither gets the rights its kings and
+     * rooks on their home squares allow, as {@link #setBoard} gives.
+     */
+    static final class Adapter extends TypeAdapter<ChessGame> {
+        private final ChessBoard.Adapter boardAdapter = new ChessBoard.Adapter();
+        private final ChessPosition.Adapter positionAdapter = new ChessPosition.Adapter();
+
+        @Override
+        public void write(JsonWriter out, ChessGame game) throws IOException {
+            if(game == null) {
+                out.nullValue();
+                return;
             }
-
-            return moves;
+            out.beginObject();
+            out.name("teamTurn").value(game.teamTurn.name());
+            out.name("gameBoard");
+            boardAdapter.write(out, game.gameBoard);
+            out.name("castlingRights").value(game.castlingRights);
+            out.name("enPassantSquare").value(game.enPassantSquare);
+            out.endObject();
         }
 
-        private Collection<ChessMove> validBlackCastleMoves() {
-            Collection<ChessMove> moves = new HashSet<ChessMove>();
-
-            if(!blackLeftRookHasMoved
-                    && ChessGame.this.gameBoard.getPiece(BLACK_LEFT_ROOK_START) != null
-                    && ChessGame.this.gameBoard.getPiece(BLACK_LEFT_ROOK_START).equals(BLACK_ROOK)
-                    && ChessGame.this.gameBoard.getPiece(new ChessPosition(8,2)) == null
-                    && ChessGame.this.gameBoard.getPiece(new ChessPosition(8,3)) == null
-                    && ChessGame.this.gameBoard.getPiece(new ChessPosition(8,4)) == null) {
-                boolean canCastle = true;
-                ChessBoard trueBoard = ChessGame.this.gameBoard.clone();
-
-                if(isInCheck(TeamColor.BLACK)) {
-                    canCastle = false;
-                }
-                ChessGame.this.gameBoard.movePiece(new ChessMove(BLACK_KING_START, new ChessPosition(8,4), null));
-                if(isInCheck(TeamColor.BLACK)) {
-                    canCastle = false;
-                }
-                ChessGame.this.gameBoard.movePiece(new ChessMove(new ChessPosition(8,4), new ChessPosition(8,3), null));
-                if(isInCheck(TeamColor.BLACK)) {
-                    canCastle = false;
-                }
-
-                if(canCastle) {
-                    moves.add(BLACK_LEFT_CASTLE);
-                }
-                ChessGame.this.gameBoard = trueBoard;
+        @Override
+        public ChessGame read(JsonReader in) throws IOException {
+            if(in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
             }
-
-            if(!blackRightRookHasMoved
-                    && ChessGame.this.gameBoard.getPiece(BLACK_RIGHT_ROOK_START) != null
-                    && ChessGame.this.gameBoard.getPiece(BLACK_RIGHT_ROOK_START).equals(BLACK_ROOK)
-                    && ChessGame.this.gameBoard.getPiece(new ChessPosition(8,6)) == null
-                    && ChessGame.this.gameBoard.getPiece(new ChessPosition(8,7)) == null) {
-                boolean canCastle = true;
-                ChessBoard trueBoard = ChessGame.this.gameBoard.clone();
-
-                if(isInCheck(TeamColor.BLACK)) {
-                    canCastle = false;
-                }
-                ChessGame.this.gameBoard.movePiece(new ChessMove(BLACK_KING_START, new ChessPosition(8,6), null));
-                if(isInCheck(TeamColor.BLACK)) {
-                    canCastle = false;
-                }
-                ChessGame.this.gameBoard.movePiece(new ChessMove(new ChessPosition(8,6), new ChessPosition(8,7), null));
-                if(isInCheck(TeamColor.BLACK)) {
-                    canCastle = false;
-                }
-
-                if(canCastle) {
-                    moves.add(BLACK_RIGHT_CASTLE);
+            TeamColor teamTurn = TeamColor.WHITE;
+            ChessBoard board = null;
+            int castlingRights = -1;
+            int lostRights = 0;
+            int enPassantSquare = -1;
+            in.beginObject();
+            while(in.hasNext()) {
+                switch(in.nextName()) {
+                    case "teamTurn" -> teamTurn = TeamColor.valueOf(in.nextString());
+                    case "gameBoard" -> board = boardAdapter.read(in);
+                    case "castlingRights" -> castlingRights = in.nextInt();
+                    case "enPassantSquare" -> enPassantSquare = in.nextInt();
+                    case "castler" -> lostRights = readCastler(in);
+                    case "enPassanter" -> enPassantSquare = readEnPassanter(in);
+                    default -> in.skipValue();
                 }
-                ChessGame.this.gameBoard = trueBoard;
             }
+            in.endObject();
 
-            return moves;
-        }
-
-        public void executeCastle(ChessMove move) {
-            if(move.equals(WHITE_LEFT_CASTLE)) {
-                ChessGame.this.gameBoard.movePiece(new ChessMove(WHITE_LEFT_ROOK_START, new ChessPosition(1,4), null));
-            }
-            if(move.equals(WHITE_RIGHT_CASTLE)) {
-                ChessGame.this.gameBoard.movePiece(new ChessMove(WHITE_RIGHT_ROOK_START, new ChessPosition(1,6), null));
+            ChessGame game = new ChessGame();
+            if(board == null) {
+                board = game.gameBoard;
             }
-            if(move.equals(BLACK_LEFT_CASTLE)) {
-                ChessGame.this.gameBoard.movePiece(new ChessMove(BLACK_LEFT_ROOK_START, new ChessPosition(8,4), null));
+            if(castlingRights < 0) {
+                game.setBoard(board);
+                castlingRights = game.castlingRights & ~lostRights;
             }
-            if(move.equals(BLACK_RIGHT_CASTLE)) {
-                ChessGame.this.gameBoard.movePiece(new ChessMove(BLACK_RIGHT_ROOK_START, new ChessPosition(8,6), null));
-            }
-        }
-    }
-
-    private class EnPassanter {
-        private ChessMove enPassantLeft = null;
-        private ChessMove enPassantRight = null;
-
-        public EnPassanter() {}
-
-        public EnPassanter(EnPassanter other) {
-            this.enPassantLeft = other.enPassantLeft;
-            this.enPassantRight = other.enPassantRight;
+            game.setPosition(board, teamTurn, castlingRights, enPassantSquare);
+            return game;
         }
 
-        public void checkEnPassantOpportunities(ChessMove move) {
-            ChessPiece piece = ChessGame.this.gameBoard.getPiece(move.getEndPosition());
-            if(piece.getPieceType() == ChessPiece.PieceType.PAWN
-                    && move.getStartPosition().getColumn() == move.getEndPosition().getColumn()
-                    && Math.abs(move.getStartPosition().getRow() - move.getEndPosition().getRow()) >= 2) {
-
-                ChessPosition enPassanterPosition = new ChessPosition(move.getEndPosition().getRow(), move.getEndPosition().getColumn()+1);
-                if(ChessPieceMoveFinder.isOnBoard(enPassanterPosition)
-                        && ChessGame.this.gameBoard.getPiece(enPassanterPosition) != null
-                        && ChessGame.this.gameBoard.getPiece(enPassanterPosition).getPieceType() == ChessPiece.PieceType.PAWN
-                        && ChessGame.this.gameBoard.getPieceColor(enPassanterPosition) != piece.getTeamColor()) {
-
-                    ChessPosition enPassanterEndPosition = new ChessPosition(move.getEndPosition().getRow()-1, move.getEndPosition().getColumn());
-                    if(move.getEndPosition().getRow() < move.getStartPosition().getRow()) {
-                        enPassanterEndPosition = new ChessPosition(move.getEndPosition().getRow()+1, move.getEndPosition().getColumn());
-                    }
-                    enPassantLeft = new ChessMove(enPassanterPosition, enPassanterEndPosition, null);
-                }
-                else {
-                    enPassantLeft = null;
-                }
-
-                enPassanterPosition = new ChessPosition(move.getEndPosition().getRow(), move.getEndPosition().getColumn()-1);
-                if(ChessPieceMoveFinder.isOnBoard(enPassanterPosition)
-                        && ChessGame.this.gameBoard.getPiece(enPassanterPosition) != null
-                        && ChessGame.this.gameBoard.getPiece(enPassanterPosition).getPieceType() == ChessPiece.PieceType.PAWN
-                        && ChessGame.this.gameBoard.getPieceColor(enPassanterPosition) != piece.getTeamColor()) {
-
-                    ChessPosition enPassanterEndPosition = new ChessPosition(move.getEndPosition().getRow()-1, move.getEndPosition().getColumn());
-                    if(move.getEndPosition().getRow() < move.getStartPosition().getRow()) {
-                        enPassanterEndPosition = new ChessPosition(move.getEndPosition().getRow()+1, move.getEndPosition().getColumn());
-                    }
-                    enPassantRight = new ChessMove(enPassanterPosition, enPassanterEndPosition, null);
+        /**
+         * @return the castling rights lost to the kings and rooks the
+         * castler saw move
+         */
+        private static int readCastler(JsonReader in) throws IOException {
+            int lost = 0;
+            in.beginObject();
+            while(in.hasNext()) {
+                String name = in.nextName();
+                if(in.peek() != JsonToken.BOOLEAN) {
+                    in.skipValue();
+                    continue;
                 }
-                else {
-                    enPassantRight = null;
+                if(!in.nextBoolean()) {
+                    continue;
                 }
-
-            }
-            else {
-                enPassantLeft = null;
-                enPassantRight = null;
+                lost |= switch(name) {
+                    case "whiteKingHasMoved" -> WHITE_KINGSIDE | WHITE_QUEENSIDE;
+                    case "blackKingHasMoved" -> BLACK_KINGSIDE | BLACK_QUEENSIDE;
+                    case "whiteLeftRookHasMoved" -> WHITE_QUEENSIDE;
+                    case "whiteRightRookHasMoved" -> WHITE_KINGSIDE;
+                    case "blackLeftRookHasMoved" -> BLACK_QUEENSIDE;
+                    case "blackRightRookHasMoved" -> BLACK_KINGSIDE;
+                    default -> 0;
+                };
             }
+            in.endObject();
+            return lost;
         }
 
-        public void executeEnPassant(ChessMove move) {
-            ChessPosition targetPawn = new ChessPosition(move.getStartPosition().getRow(), move.getEndPosition().getColumn());
-            ChessGame.this.gameBoard.addPiece(targetPawn, null);
-        }
-
-        public Collection<ChessMove> getEnPassantMoves(ChessPosition startPosition) {
-            Collection<ChessMove> moves = new HashSet<>();
-
-            if(enPassantRight != null
-                    && enPassantRight.getStartPosition().equals(startPosition)) {
-                moves.add(enPassantRight);
-            }
-
-            if(enPassantLeft != null
-                    && enPassantLeft.getStartPosition().equals(startPosition)) {
-                moves.add(enPassantLeft);
+        /**
+         * @return the square the en passant captures land on, or -1 if
+         * none were possible
+         */
+        private int readEnPassanter(JsonReader in) throws IOException {
+            int square = -1;
+            in.beginObject();
+            while(in.hasNext()) {
+                in.nextName();
+                if(in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                in.beginObject();
+                while(in.hasNext()) {
+                    if(in.nextName().equals("endPosition") && in.peek() != JsonToken.NULL) {
+                        ChessPosition end = positionAdapter.read(in);
+                        if(ChessPieceMoveFinder.isOnBoard(end)) {
+                            square = Bitboards.square(end);
+                        }
+                    }
+                    else {
+                        in.skipValue();
+                    }
+                }
+                in.endObject();
             }
-
-            return moves;
+            in.endObject();
+            return square;
         }
     }
 }
@@ -1,8 +1,14 @@
 package chess;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.Objects;
 import chess.ChessGame.TeamColor;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
 /**
  * Represents a single chess piece
@@ -10,8 +16,18 @@ import chess.ChessGame.TeamColor;
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(ChessPiece.Adapter.class)
 public class ChessPiece {
 
+    private static final ChessPiece[] PIECES = new ChessPiece[Bitboards.PIECE_KINDS];
+    static {
+        for(TeamColor color : TeamColor.values()) {
+            for(PieceType type : PieceType.values()) {
+                PIECES[Bitboards.pieceIndex(color, type)] = new ChessPiece(color, type);
+            }
+        }
+    }
+
     private final TeamColor pieceColor;
     private final PieceType type;
 
@@ -20,6 +36,22 @@ public class ChessPiece {
         this.type = type;
     }
 
+    /**
+     * @return the shared instance of a piece, so callers don't allocate a
+     * new piece for each lookup
+     */
+    public static ChessPiece of(TeamColor pieceColor, PieceType type) {
+        return PIECES[Bitboards.pieceIndex(pieceColor, type)];
+    }
+
+    /**
+     * @return the shared instance for a piece index, as used by the
+     * bitboards
+     */
+    static ChessPiece of(int pieceIndex) {
+        return PIECES[pieceIndex];
+    }
+
     /**
      * The various different chess piece options
      */
@@ -90,4 +122,46 @@ public class ChessPiece {
                 ", type=" + type +
                 '}';
     }
+
+    /**
+     * Reads pieces through {@link #of(TeamColor, PieceType)} so
+     * deserialized pieces share the cached instances, and writes the same
+     * fields Gson would
+     */
+    static final class Adapter extends TypeAdapter<ChessPiece> {
+        @Override
+        public void write(JsonWriter out, ChessPiece piece) throws IOException {
+            if(piece == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("pieceColor").value(piece.pieceColor.name());
+            out.name("type").value(piece.type.name());
+            out.endObject();
+        }
+
+        @Override
+        public ChessPiece read(JsonReader in) throws IOException {
+            if(in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            TeamColor pieceColor = null;
+            PieceType type = null;
+            in.beginObject();
+            while(in.hasNext()) {
+                switch(in.nextName()) {
+                    case "pieceColor" -> pieceColor = TeamColor.valueOf(in.nextString());
+                    case "type" -> type = PieceType.valueOf(in.nextString());
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            if(pieceColor == null || type == null) {
+                return new ChessPiece(pieceColor, type);
+            }
+            return of(pieceColor, type);
+        }
+    }
 }
@@ -50,12 +50,12 @@ public class ChessPieceMoveFinder {
             }
         }
 
-        ChessPosition target = new ChessPosition(row+advance, col);
+        ChessPosition target = ChessPosition.of(row+advance, col);
         if(board.getPieceColor(target) == null) {
             moves.add(new ChessMove(myPosition, target, null));
 
             if(atStart) {
-                target = new ChessPosition(row+2*advance, col);
+                target = ChessPosition.of(row+2*advance, col);
                 if(board.getPieceColor(target) == null) {
                     moves.add(new ChessMove(myPosition, target, null));
                 }
@@ -64,7 +64,7 @@ public class ChessPieceMoveFinder {
 
         int i = 1;
         while(true) {
-            target = new ChessPosition(row+advance, col+i);
+            target = ChessPosition.of(row+advance, col+i);
             if(isOnBoard(target) && board.getPieceColor(target) != null && board.getPieceColor(target) != myColor) {
                 moves.add(new ChessMove(myPosition, target, null));
             }
@@ -107,18 +107,8 @@ public class ChessPieceMoveFinder {
      * @return Collection of valid moves
      */
     public static HashSet<ChessMove> kingMoves(ChessBoard board, ChessPosition myPosition, TeamColor myColor) {
-        HashSet<ChessMove> moves = new HashSet<ChessMove>();
-
-        moves.addAll(jump(board, myPosition, myColor, 1, 0));
-        moves.addAll(jump(board, myPosition, myColor, 1, 1));
-        moves.addAll(jump(board, myPosition, myColor, 0, 1));
-        moves.addAll(jump(board, myPosition, myColor, -1, 1));
-        moves.addAll(jump(board, myPosition, myColor, -1, 0));
-        moves.addAll(jump(board, myPosition, myColor, -1, -1));
-        moves.addAll(jump(board, myPosition, myColor, 0, -1));
-        moves.addAll(jump(board, myPosition, myColor, 1, -1));
-
-        return moves;
+        long targets = Attacks.kingAttacks(Bitboards.square(myPosition));
+        return toMoves(myPosition, targets & ~board.getOccupancy(myColor));
     }
 
     /**
@@ -129,18 +119,8 @@ public class ChessPieceMoveFinder {
      * @return Collection of valid moves
      */
     public static HashSet<ChessMove> knightMoves(ChessBoard board, ChessPosition myPosition, TeamColor myColor) {
-        HashSet<ChessMove> moves = new HashSet<ChessMove>();
-
-        moves.addAll(jump(board, myPosition, myColor, 2, 1));
-        moves.addAll(jump(board, myPosition, myColor, 1, 2));
-        moves.addAll(jump(board, myPosition, myColor, -1, 2));
-        moves.addAll(jump(board, myPosition, myColor, -2, 1));
-        moves.addAll(jump(board, myPosition, myColor, -2, -1));
-        moves.addAll(jump(board, myPosition, myColor, -1, -2));
-        moves.addAll(jump(board, myPosition, myColor, 1, -2));
-        moves.addAll(jump(board, myPosition, myColor, 2, -1));
-
-        return moves;
+        long targets = Attacks.knightAttacks(Bitboards.square(myPosition));
+        return toMoves(myPosition, targets & ~board.getOccupancy(myColor));
     }
 
     /**
@@ -151,14 +131,8 @@ public class ChessPieceMoveFinder {
      * @return Collection of valid moves
      */
     public static HashSet<ChessMove> rookMoves(ChessBoard board, ChessPosition myPosition, TeamColor myColor) {
-        HashSet<ChessMove> moves = new HashSet<ChessMove>();
-
-        moves.addAll(slide(board, myPosition, myColor, 1, 0));
-        moves.addAll(slide(board, myPosition, myColor, 0, 1));
-        moves.addAll(slide(board, myPosition, myColor, -1, 0));
-        moves.addAll(slide(board, myPosition, myColor, 0, -1));
-
-        return moves;
+        long targets = Attacks.rookAttacks(Bitboards.square(myPosition), board.getOccupancy());
+        return toMoves(myPosition, targets & ~board.getOccupancy(myColor));
     }
 
     /**
@@ -169,68 +143,29 @@ public class ChessPieceMoveFinder {
      * @return Collection of valid moves
      */
     public static HashSet<ChessMove> bishopMoves(ChessBoard board, ChessPosition myPosition, TeamColor myColor) {
-        HashSet<ChessMove> moves = new HashSet<ChessMove>();
-
-        moves.addAll(slide(board, myPosition, myColor, 1, 1));
-        moves.addAll(slide(board, myPosition, myColor, -1, 1));
-        moves.addAll(slide(board, myPosition, myColor, -1, -1));
-        moves.addAll(slide(board, myPosition, myColor, 1, -1));
-
-        return moves;
+        long targets = Attacks.bishopAttacks(Bitboards.square(myPosition), board.getOccupancy());
+        return toMoves(myPosition, targets & ~board.getOccupancy(myColor));
     }
 
     /**
-     * Calculates all the positions a knight can move to
+     * Calculates all the positions a queen can move to
      * Does not take into account moves that are illegal due to leaving the king in
      * danger
      *
      * @return Collection of valid moves
      */
     public static HashSet<ChessMove> queenMoves(ChessBoard board, ChessPosition myPosition, TeamColor myColor) {
-        HashSet<ChessMove> moves = new HashSet<ChessMove>();
-        moves.addAll(bishopMoves(board, myPosition, myColor));
-        moves.addAll(rookMoves(board, myPosition, myColor));
-        return moves;
-    }
-
-    private static HashSet<ChessMove> jump(ChessBoard board, ChessPosition myPosition, TeamColor myColor, int rowOffset, int columnOffset) {
-        HashSet<ChessMove> moves = new HashSet<ChessMove>();
-        ChessPosition target = new ChessPosition(myPosition.getRow()+rowOffset, myPosition.getColumn()+columnOffset);
-
-        if(!isOnBoard(target)) {
-            return moves;
-        }
-        TeamColor targetColor = board.getPieceColor(target);
-        if(targetColor == myColor) {
-            return moves;
-        }
-        moves.add(new ChessMove(myPosition, target, null));
-        return moves;
+        long targets = Attacks.queenAttacks(Bitboards.square(myPosition), board.getOccupancy());
+        return toMoves(myPosition, targets & ~board.getOccupancy(myColor));
     }
 
-    private static HashSet<ChessMove> slide(ChessBoard board, ChessPosition myPosition, TeamColor myColor, int rowOffset, int columnOffset) {
+    private static HashSet<ChessMove> toMoves(ChessPosition myPosition, long targets) {
         HashSet<ChessMove> moves = new HashSet<ChessMove>();
-
-        int row = myPosition.getRow() + rowOffset;
-        int col = myPosition.getColumn() + columnOffset;
-        ChessPosition target = new ChessPosition(row, col);
-        while(isOnBoard(target)) {
-            TeamColor targetColor = board.getPieceColor(target);
-
-            if(targetColor == myColor) {
-                break;
-            }
-            moves.add(new ChessMove(myPosition, target, null));
-            if(targetColor != null) {
-                break;
-            }
-
-            //increment
-            row += rowOffset;
-            col += columnOffset;
-            target = new ChessPosition(row, col);
+        while(targets != 0) {
+            int square = Bitboards.firstSquare(targets);
+            moves.add(new ChessMove(myPosition, Bitboards.position(square), null));
+            targets &= targets - 1;
         }
-
         return moves;
     }
-}
\ No newline at end of file
+}
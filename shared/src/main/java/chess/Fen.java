@@ -0,0 +1,174 @@
+package chess;
+
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece.PieceType;
+
+/**
+ * Reads and writes positions in Forsyth-Edwards Notation
+ * <p>
+ * The halfmove clock and fullmove number are accepted but not kept, since
+ * ChessGame does not track them, and are written back as 0 and 1.
+ */
+public final class Fen {
+
+    public static final String START_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private static final String PIECE_CHARS = "KQBNRP";
+
+    private Fen() { }
+
+    /**
+     * @param fen the position to read
+     * @return a game set up in the position
+     * @throws IllegalArgumentException if the text is not a valid position
+     */
+    public static ChessGame parse(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        if(fields.length < 2) {
+            throw new IllegalArgumentException("Incomplete FEN: " + fen);
+        }
+
+        ChessBoard board = parsePlacement(fields[0]);
+
+        TeamColor turn = switch(fields[1]) {
+            case "w" -> TeamColor.WHITE;
+            case "b" -> TeamColor.BLACK;
+            default -> throw new IllegalArgumentException("Bad side to move in FEN: " + fen);
+        };
+
+        int castlingRights = 0;
+        if(fields.length > 2) {
+            for(char c : fields[2].toCharArray()) {
+                castlingRights |= switch(c) {
+                    case 'K' -> ChessGame.WHITE_KINGSIDE;
+                    case 'Q' -> ChessGame.WHITE_QUEENSIDE;
+                    case 'k' -> ChessGame.BLACK_KINGSIDE;
+                    case 'q' -> ChessGame.BLACK_QUEENSIDE;
+                    case '-' -> 0;
+                    default -> throw new IllegalArgumentException("Bad castling rights in FEN: " + fen);
+                };
+            }
+        }
+
+        int enPassantSquare = -1;
+        if(fields.length > 3 && !fields[3].equals("-")) {
+            enPassantSquare = parseSquare(fields[3]);
+        }
+
+        ChessGame game = new ChessGame();
+        game.setPosition(board, turn, castlingRights, enPassantSquare);
+        return game;
+    }
+
+    /**
+     * @return the position of a game in Forsyth-Edwards Notation
+     */
+    public static String write(ChessGame game) {
+        StringBuilder fen = new StringBuilder(writePlacement(game.getBoard()));
+        fen.append(game.getTeamTurn() == TeamColor.WHITE ? " w " : " b ");
+
+        int rights = game.getCastlingRights();
+        if(rights == 0) {
+            fen.append('-');
+        }
+        if((rights & ChessGame.WHITE_KINGSIDE) != 0) {
+            fen.append('K');
+        }
+        if((rights & ChessGame.WHITE_QUEENSIDE) != 0) {
+            fen.append('Q');
+        }
+        if((rights & ChessGame.BLACK_KINGSIDE) != 0) {
+            fen.append('k');
+        }
+        if((rights & ChessGame.BLACK_QUEENSIDE) != 0) {
+            fen.append('q');
+        }
+
+        ChessPosition enPassant = game.getEnPassantPosition();
+        fen.append(' ').append(enPassant == null ? "-" : squareName(Bitboards.square(enPassant)));
+        return fen.append(" 0 1").toString();
+    }
+
+    /**
+     * @param placement the piece placement field of a position, such as
+     *                  "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR"
+     * @return a board holding those pieces
+     * @throws IllegalArgumentException if the text is not a valid placement
+     */
+    public static ChessBoard parsePlacement(String placement) {
+        ChessBoard board = new ChessBoard();
+        int row = 8;
+        int col = 1;
+        for(char c : placement.toCharArray()) {
+            if(c == '/') {
+                row--;
+                col = 1;
+            }
+            else if(Character.isDigit(c)) {
+                col += c - '0';
+            }
+            else {
+                int type = PIECE_CHARS.indexOf(Character.toUpperCase(c));
+                if(type < 0 || row < 1 || col > 8) {
+                    throw new IllegalArgumentException("Bad piece placement in FEN: " + placement);
+                }
+                TeamColor color = Character.isUpperCase(c) ? TeamColor.WHITE : TeamColor.BLACK;
+                board.setSquare(Bitboards.square(row, col), Bitboards.pieceIndex(color, typeOf(c)));
+                col++;
+            }
+        }
+        return board;
+    }
+
+    /**
+     * @return the piece placement field of a board, eighth row first
+     */
+    public static String writePlacement(ChessBoard board) {
+        StringBuilder placement = new StringBuilder();
+        for(int row = 8; row >= 1; row--) {
+            int empty = 0;
+            for(int col = 1; col <= 8; col++) {
+                int pieceIndex = board.pieceAt(Bitboards.square(row, col));
+                if(pieceIndex < 0) {
+                    empty++;
+                    continue;
+                }
+                if(empty > 0) {
+                    placement.append(empty);
+                    empty = 0;
+                }
+                char c = PIECE_CHARS.charAt(Bitboards.typeOf(pieceIndex).ordinal());
+                placement.append(Bitboards.colorOf(pieceIndex) == TeamColor.WHITE ? c : Character.toLowerCase(c));
+            }
+            if(empty > 0) {
+                placement.append(empty);
+            }
+            if(row > 1) {
+                placement.append('/');
+            }
+        }
+        return placement.toString();
+    }
+
+    /**
+     * @return the square index of a square name such as "e4"
+     */
+    public static int parseSquare(String name) {
+        if(name.length() != 2 || name.charAt(0) < 'a' || name.charAt(0) > 'h'
+                || name.charAt(1) < '1' || name.charAt(1) > '8') {
+            throw new IllegalArgumentException("Bad square: " + name);
+        }
+        return Bitboards.square(name.charAt(1) - '0', name.charAt(0) - 'a' + 1);
+    }
+
+    /**
+     * @return the name of a square, such as "e4"
+     */
+    public static String squareName(int square) {
+        return "" + (char) ('a' + Bitboards.column(square) - 1) + Bitboards.row(square);
+    }
+
+    private static PieceType typeOf(char c) {
+        return PieceType.values()[PIECE_CHARS.indexOf(Character.toUpperCase(c))];
+    }
+}
@@ -0,0 +1,92 @@
+package chess;
+
+import chess.ChessPiece.PieceType;
+
+/**
+ * Packs a move into an int so generators can produce moves without
+ * allocating
+ * <p>
+ * Bits 0-5 hold the start square, bits 6-11 the end square, bits 12-14 the
+ * promotion type (its ordinal plus one, or 0 for none) and bits 15-16 mark
+ * en passant captures and castles. {@link #NONE} is never a real move.
+ */
+public final class Move {
+
+    public static final int NONE = 0;
+
+    public static final int NORMAL = 0;
+    public static final int EN_PASSANT = 1;
+    public static final int CASTLE = 2;
+
+    private static final PieceType[] TYPES = PieceType.values();
+
+    private Move() { }
+
+    public static int of(int from, int to) {
+        return from | to << 6;
+    }
+
+    public static int of(int from, int to, int flag) {
+        return from | to << 6 | flag << 15;
+    }
+
+    public static int promotion(int from, int to, PieceType promotion) {
+        return from | to << 6 | (promotion.ordinal() + 1) << 12;
+    }
+
+    public static int from(int move) {
+        return move & 0x3F;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    /**
+     * @return the type a pawn promotes to, or null if the move is not a
+     * promotion
+     */
+    public static PieceType promotion(int move) {
+        int promotion = (move >>> 12) & 0x7;
+        return promotion == 0 ? null : TYPES[promotion - 1];
+    }
+
+    public static boolean isPromotion(int move) {
+        return (move & 0x7000) != 0;
+    }
+
+    public static int flag(int move) {
+        return (move >>> 15) & 0x3;
+    }
+
+    /**
+     * @return whether a move has the same start, end and promotion as a
+     * ChessMove, ignoring its flags
+     */
+    public static boolean matches(int move, ChessMove chessMove) {
+        return from(move) == Bitboards.square(chessMove.getStartPosition())
+                && to(move) == Bitboards.square(chessMove.getEndPosition())
+                && promotion(move) == chessMove.getPromotionPiece();
+    }
+
+    public static ChessMove toChessMove(int move) {
+        return new ChessMove(Bitboards.position(from(move)), Bitboards.position(to(move)), promotion(move));
+    }
+
+    /**
+     * @return the move in coordinate notation, such as "e2e4" or "e7e8q"
+     */
+    public static String toString(int move) {
+        String name = Fen.squareName(from(move)) + Fen.squareName(to(move));
+        PieceType promotion = promotion(move);
+        if(promotion != null) {
+            name += switch(promotion) {
+                case QUEEN -> "q";
+                case ROOK -> "r";
+                case BISHOP -> "b";
+                default -> "n";
+            };
+        }
+        return name;
+    }
+}
@@ -0,0 +1,267 @@
+package chess;
+
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece.PieceType;
+
+/**
+ * Generates only legal moves
+ * <p>
+ * The checkers and pinned pieces of a position are found once, then every
+ * piece's targets are masked so no move can leave the king in check. In
+ * double check only the king is considered.
+ */
+final class MoveGenerator {
+
+    private static final PieceType[] PIECES = {
+            PieceType.KNIGHT, PieceType.BISHOP, PieceType.ROOK, PieceType.QUEEN
+    };
+    private static final PieceType[] PROMOTIONS = {
+            PieceType.QUEEN, PieceType.ROOK, PieceType.BISHOP, PieceType.KNIGHT
+    };
+
+    //Which moves to generate: captures and promotions, everything else, or both
+    static final int NOISY = 1;
+    static final int QUIET = 2;
+    static final int ALL = NOISY | QUIET;
+
+    private MoveGenerator() { }
+
+    /**
+     * Adds the legal moves of a team to a move list
+     *
+     * @param board           the board to generate moves on
+     * @param color           the team to move
+     * @param castlingRights  castling rights, as in {@link ChessGame#getCastlingRights()}
+     * @param enPassantSquare the en passant target square, or -1 for none
+     * @param fromMask        only pieces on these squares are moved
+     * @param moves           where the moves are added
+     */
+    static void legalMoves(ChessBoard board, TeamColor color, int castlingRights, int enPassantSquare,
+                           long fromMask, MoveList moves) {
+        legalMoves(board, color, castlingRights, enPassantSquare, fromMask, ALL, moves);
+    }
+
+    /**
+     * Adds some of the legal moves of a team to a move list. Noisy moves
+     * are captures, en passant and promotions; quiet moves are the rest,
+     * including castling.
+     *
+     * @param kinds {@link #NOISY}, {@link #QUIET} or {@link #ALL}
+     */
+    static void legalMoves(ChessBoard board, TeamColor color, int castlingRights, int enPassantSquare,
+                           long fromMask, int kinds, MoveList moves) {
+        TeamColor opponent = color.opponent();
+        long us = board.getOccupancy(color);
+        long them = board.getOccupancy(opponent);
+        long occupied = board.getOccupancy();
+        long kindMask = ((kinds & NOISY) != 0 ? them : 0L) | ((kinds & QUIET) != 0 ? ~occupied : 0L);
+
+        long king = board.getBitboard(color, PieceType.KING);
+        int kingSquare = (king == 0) ? -1 : Bitboards.firstSquare(king);
+
+        long checkers = 0L;
+        long pinned = 0L;
+        long checkMask = ~0L;
+        if(kingSquare >= 0) {
+            checkers = board.attackersTo(kingSquare, occupied) & them;
+            pinned = pinnedPieces(board, kingSquare, opponent, us, occupied);
+
+            if((king & fromMask) != 0) {
+                long targets = Attacks.kingAttacks(kingSquare) & kindMask;
+                long withoutKing = occupied ^ king;
+                while(targets != 0) {
+                    int to = Bitboards.firstSquare(targets);
+                    if(!board.isSquareAttacked(to, opponent, withoutKing)) {
+                        moves.add(Move.of(kingSquare, to));
+                    }
+                    targets &= targets - 1;
+                }
+            }
+
+            if(Long.bitCount(checkers) > 1) {
+                return;
+            }
+            if(checkers != 0) {
+                checkMask = checkers | Attacks.between(kingSquare, Bitboards.firstSquare(checkers));
+            }
+            else if((king & fromMask) != 0 && (kinds & QUIET) != 0) {
+                castleMoves(board, color, castlingRights, kingSquare, occupied, moves);
+            }
+        }
+
+        long targetMask = kindMask & checkMask;
+
+        for(PieceType type : PIECES) {
+            long pieces = board.getBitboard(color, type) & fromMask;
+            while(pieces != 0) {
+                int from = Bitboards.firstSquare(pieces);
+                long targets = switch(type) {
+                    case KNIGHT -> Attacks.knightAttacks(from);
+                    case BISHOP -> Attacks.bishopAttacks(from, occupied);
+                    case ROOK -> Attacks.rookAttacks(from, occupied);
+                    default -> Attacks.queenAttacks(from, occupied);
+                } & targetMask;
+                if((pinned & Bitboards.bit(from)) != 0) {
+                    targets &= Attacks.line(kingSquare, from);
+                }
+                addMoves(moves, from, targets);
+                pieces &= pieces - 1;
+            }
+        }
+
+        pawnMoves(board, color, kingSquare, pinned, checkMask, enPassantSquare, fromMask, kinds, moves);
+    }
+
+    /**
+     * Checks for any legal move one piece at a time, starting with the
+     * king, so it stops at the first piece that can move instead of
+     * generating every move
+     *
+     * @return whether the team has at least one legal move
+     */
+    static boolean hasLegalMove(ChessBoard board, TeamColor color, int castlingRights, int enPassantSquare) {
+        MoveList moves = new MoveList(32);
+        long king = board.getBitboard(color, PieceType.KING);
+        legalMoves(board, color, castlingRights, enPassantSquare, king, moves);
+
+        long pieces = board.getOccupancy(color) & ~king;
+        while(pieces != 0 && moves.isEmpty()) {
+            legalMoves(board, color, castlingRights, enPassantSquare, pieces & -pieces, moves);
+            pieces &= pieces - 1;
+        }
+        return !moves.isEmpty();
+    }
+
+    /**
+     * @return our pieces that are the only blocker between our king and an
+     * enemy slider
+     */
+    private static long pinnedPieces(ChessBoard board, int kingSquare, TeamColor opponent, long us, long occupied) {
+        long queens = board.getBitboard(opponent, PieceType.QUEEN);
+        long snipers = (Attacks.rookAttacks(kingSquare, 0L) & (board.getBitboard(opponent, PieceType.ROOK) | queens))
+                | (Attacks.bishopAttacks(kingSquare, 0L) & (board.getBitboard(opponent, PieceType.BISHOP) | queens));
+
+        long pinned = 0L;
+        while(snipers != 0) {
+            long blockers = Attacks.between(kingSquare, Bitboards.firstSquare(snipers)) & occupied;
+            if(Long.bitCount(blockers) == 1 && (blockers & us) != 0) {
+                pinned |= blockers;
+            }
+            snipers &= snipers - 1;
+        }
+        return pinned;
+    }
+
+    private static void pawnMoves(ChessBoard board, TeamColor color, int kingSquare, long pinned, long checkMask,
+                                  int enPassantSquare, long fromMask, int kinds, MoveList moves) {
+        long occupied = board.getOccupancy();
+        long them = board.getOccupancy(color.opponent());
+        int forward = (color == TeamColor.WHITE) ? 8 : -8;
+        int startRow = (color == TeamColor.WHITE) ? 2 : 7;
+        int lastRow = (color == TeamColor.WHITE) ? 8 : 1;
+        long lastRowMask = 0xFFL << ((lastRow - 1) * 8);
+        //Pushes are noisy only when they promote, and captures are always noisy
+        long pushMask = ((kinds & NOISY) != 0 ? lastRowMask : 0L) | ((kinds & QUIET) != 0 ? ~lastRowMask : 0L);
+        long captureMask = (kinds & NOISY) != 0 ? them : 0L;
+
+        long pawns = board.getBitboard(color, PieceType.PAWN) & fromMask;
+        while(pawns != 0) {
+            int from = Bitboards.firstSquare(pawns);
+            pawns &= pawns - 1;
+
+            long targets = 0L;
+            int single = from + forward;
+            if(single < 0 || single >= 64) {
+                continue;
+            }
+            if((occupied & Bitboards.bit(single)) == 0) {
+                targets |= Bitboards.bit(single);
+                int twice = single + forward;
+                if(Bitboards.row(from) == startRow && (occupied & Bitboards.bit(twice)) == 0) {
+                    targets |= Bitboards.bit(twice);
+                }
+            }
+            targets &= pushMask;
+            targets |= Attacks.pawnAttacks(color, from) & captureMask;
+            targets &= checkMask;
+            if((pinned & Bitboards.bit(from)) != 0) {
+                targets &= Attacks.line(kingSquare, from);
+            }
+
+            while(targets != 0) {
+                int to = Bitboards.firstSquare(targets);
+                if(Bitboards.row(to) == lastRow) {
+                    for(PieceType promotion : PROMOTIONS) {
+                        moves.add(Move.promotion(from, to, promotion));
+                    }
+                }
+                else {
+                    moves.add(Move.of(from, to));
+                }
+                targets &= targets - 1;
+            }
+
+            if(enPassantSquare >= 0 && (kinds & NOISY) != 0
+                    && (Attacks.pawnAttacks(color, from) & Bitboards.bit(enPassantSquare)) != 0
+                    && enPassantIsLegal(board, color, kingSquare, from, enPassantSquare)) {
+                moves.add(Move.of(from, enPassantSquare, Move.EN_PASSANT));
+            }
+        }
+    }
+
+    /**
+     * En passant removes two pawns from one row at once, which the pin
+     * and check masks cannot describe, so the resulting position is tested
+     * directly
+     */
+    private static boolean enPassantIsLegal(ChessBoard board, TeamColor color, int kingSquare, int from, int to) {
+        if(Bitboards.row(to) != ((color == TeamColor.WHITE) ? 6 : 3)) {
+            return false;
+        }
+        int captured = Bitboards.square(Bitboards.row(from), Bitboards.column(to));
+        if((board.getBitboard(color.opponent(), PieceType.PAWN) & Bitboards.bit(captured)) == 0) {
+            return false;
+        }
+        if(kingSquare < 0) {
+            return true;
+        }
+        long occupied = (board.getOccupancy() ^ Bitboards.bit(from) ^ Bitboards.bit(captured)) | Bitboards.bit(to);
+        long attackers = board.attackersTo(kingSquare, occupied) & board.getOccupancy(color.opponent());
+        return (attackers & ~Bitboards.bit(captured)) == 0;
+    }
+
+    private static void castleMoves(ChessBoard board, TeamColor color, int castlingRights, int kingSquare,
+                                    long occupied, MoveList moves) {
+        int row = (color == TeamColor.WHITE) ? 1 : 8;
+        if(kingSquare != Bitboards.square(row, 5)) {
+            return;
+        }
+        int kingside = (color == TeamColor.WHITE) ? ChessGame.WHITE_KINGSIDE : ChessGame.BLACK_KINGSIDE;
+        int queenside = (color == TeamColor.WHITE) ? ChessGame.WHITE_QUEENSIDE : ChessGame.BLACK_QUEENSIDE;
+        TeamColor opponent = color.opponent();
+        long rooks = board.getBitboard(color, PieceType.ROOK);
+
+        if((castlingRights & kingside) != 0
+                && (rooks & Bitboards.bit(kingSquare + 3)) != 0
+                && (occupied & (Bitboards.bit(kingSquare + 1) | Bitboards.bit(kingSquare + 2))) == 0
+                && !board.isSquareAttacked(kingSquare + 1, opponent, occupied)
+                && !board.isSquareAttacked(kingSquare + 2, opponent, occupied)) {
+            moves.add(Move.of(kingSquare, kingSquare + 2, Move.CASTLE));
+        }
+        if((castlingRights & queenside) != 0
+                && (rooks & Bitboards.bit(kingSquare - 4)) != 0
+                && (occupied & (Bitboards.bit(kingSquare - 1) | Bitboards.bit(kingSquare - 2)
+                        | Bitboards.bit(kingSquare - 3))) == 0
+                && !board.isSquareAttacked(kingSquare - 1, opponent, occupied)
+                && !board.isSquareAttacked(kingSquare - 2, opponent, occupied)) {
+            moves.add(Move.of(kingSquare, kingSquare - 2, Move.CASTLE));
+        }
+    }
+
+    private static void addMoves(MoveList moves, int from, long targets) {
+        while(targets != 0) {
+            moves.add(Move.of(from, Bitboards.firstSquare(targets)));
+            targets &= targets - 1;
+        }
+    }
+}
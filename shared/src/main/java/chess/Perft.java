@@ -0,0 +1,273 @@
+package chess;
+
+import chess.ChessPiece.PieceType;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Counts move-tree leaves to check and time the move generator
+ * <p>
+ * Run it from the command line to check the standard positions against
+ * their published counts:
+ * <pre>
+ * java chess.Perft [--threads N] [--hash MB] [--max-nodes N] [--depth D --fen FEN]
+ * </pre>
+ * Without --fen the whole suite is run, each position to the deepest count
+ * that is at most --max-nodes.
+ */
+public final class Perft {
+
+    public record Position(String name, String fen, long... counts) { }
+
+    public static final List<Position> SUITE = List.of(
+            new Position("start position", Fen.START_POSITION,
+                    20L, 400L, 8902L, 197281L, 4865609L, 119060324L),
+            new Position("kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                    48L, 2039L, 97862L, 4085603L, 193690690L),
+            new Position("rook endgame", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                    14L, 191L, 2812L, 43238L, 674624L, 11030083L),
+            new Position("promotions", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                    6L, 264L, 9467L, 422333L, 15833292L),
+            new Position("promotion checks", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                    44L, 1486L, 62379L, 2103487L, 89941194L),
+            new Position("illegal en passant 1", "3k4/3p4/8/K1P4r/8/8/8/8 b - - 0 1",
+                    18L, 92L, 1670L, 10138L, 185429L, 1134888L),
+            new Position("illegal en passant 2", "8/8/4k3/8/2p5/8/B2P2K1/8 w - - 0 1",
+                    13L, 102L, 1266L, 10276L, 135655L, 1015133L),
+            new Position("en passant gives check", "8/8/1k6/2b5/2pP4/8/5K2/8 b - d3 0 1",
+                    15L, 126L, 1928L, 13931L, 206379L, 1440467L),
+            new Position("short castle gives check", "5k2/8/8/8/8/8/8/4K2R w K - 0 1",
+                    15L, 66L, 1198L, 6399L, 120330L, 661072L),
+            new Position("long castle gives check", "3k4/8/8/8/8/8/8/R3K3 w Q - 0 1",
+                    16L, 71L, 1286L, 7418L, 141077L, 803711L),
+            new Position("castling rights", "r3k2r/1b4bq/8/8/8/8/7B/R3K2R w KQkq - 0 1",
+                    26L, 1141L, 27826L, 1274206L),
+            new Position("castling prevented", "r3k2r/8/3Q4/8/8/5q2/8/R3K2R b KQkq - 0 1",
+                    44L, 1494L, 50509L, 1720476L),
+            new Position("promote out of check", "2K2r2/4P3/8/8/8/8/8/3k4 w - - 0 1",
+                    11L, 133L, 1442L, 19174L, 266199L, 3821001L),
+            new Position("discovered check", "8/8/1P2K3/8/2n5/1q6/8/5k2 b - - 0 1",
+                    29L, 165L, 5160L, 31961L, 1004658L),
+            new Position("promote to give check", "4k3/1P6/8/8/8/8/K7/8 w - - 0 1",
+                    9L, 40L, 472L, 2661L, 38983L, 217342L),
+            new Position("underpromote to give check", "8/P1k5/K7/8/8/8/8/8 w - - 0 1",
+                    6L, 27L, 273L, 1329L, 18135L, 92683L),
+            new Position("self stalemate", "K1k5/8/P7/8/8/8/8/8 w - - 0 1",
+                    2L, 6L, 13L, 63L, 382L, 2217L),
+            new Position("stalemate and checkmate", "8/k1P5/8/1K6/8/8/8/8 w - - 0 1",
+                    10L, 25L, 268L, 926L, 10857L, 43261L, 567584L),
+            new Position("stalemate and checkmate 2", "8/8/2k5/5q2/5n2/8/5K2/8 b - - 0 1",
+                    37L, 183L, 6559L, 23527L)
+    );
+
+    private Perft() { }
+
+    /**
+     * @return the number of leaf positions exactly depth moves from the game
+     */
+    public static long perft(ChessGame game, int depth) {
+        return perft(game, depth, null, moveLists(depth));
+    }
+
+    /**
+     * Counts the leaves under each root move, splitting the root moves
+     * across a pool of threads that share an optional hash table
+     *
+     * @param game          the root position
+     * @param depth         how many moves deep to count, including the root move
+     * @param threads       how many threads to count with
+     * @param hashMegabytes size of the shared subtree table, or 0 for none
+     * @return the count for each root move, in generation order
+     */
+    public static Map<ChessMove, Long> divide(ChessGame game, int depth, int threads, int hashMegabytes) {
+        Map<ChessMove, Long> counts = new LinkedHashMap<>();
+        if(depth < 1) {
+            return counts;
+        }
+
+        Table table = (hashMegabytes > 0) ? new Table(hashMegabytes) : null;
+        MoveList rootMoves = new MoveList();
+        game.legalMoves(rootMoves);
+
+        if(threads <= 1) {
+            MoveList[] lists = moveLists(depth);
+            for(int i = 0; i < rootMoves.size(); i++) {
+                game.makeMove(rootMoves.get(i));
+                counts.put(Move.toChessMove(rootMoves.get(i)), perft(game, depth - 1, table, lists));
+                game.unmakeMove();
+            }
+            return counts;
+        }
+
+        List<ForkJoinTask<Long>> tasks = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for(int i = 0; i < rootMoves.size(); i++) {
+                ChessGame copy = new ChessGame(game);
+                int move = rootMoves.get(i);
+                tasks.add(pool.submit(() -> {
+                    copy.makeMove(move);
+                    return perft(copy, depth - 1, table, moveLists(depth));
+                }));
+            }
+            for(int i = 0; i < rootMoves.size(); i++) {
+                counts.put(Move.toChessMove(rootMoves.get(i)), tasks.get(i).join());
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+        return counts;
+    }
+
+    private static MoveList[] moveLists(int depth) {
+        MoveList[] lists = new MoveList[depth + 1];
+        for(int i = 0; i < lists.length; i++) {
+            lists[i] = new MoveList();
+        }
+        return lists;
+    }
+
+    private static long perft(ChessGame game, int depth, Table table, MoveList[] lists) {
+        if(depth == 0) {
+            return 1;
+        }
+
+        MoveList moves = lists[depth];
+        game.legalMoves(moves);
+        if(depth == 1) {
+            return moves.size();
+        }
+
+        long key = 0L;
+        if(table != null) {
+            key = game.zobristKey();
+            long stored = table.probe(key, depth);
+            if(stored >= 0) {
+                return stored;
+            }
+        }
+
+        long nodes = 0;
+        for(int i = 0; i < moves.size(); i++) {
+            game.makeMove(moves.get(i));
+            nodes += perft(game, depth - 1, table, lists);
+            game.unmakeMove();
+        }
+
+        if(table != null) {
+            table.store(key, depth, nodes);
+        }
+        return nodes;
+    }
+
+    /**
+     * A lock-free table of subtree counts. Each slot stores the count and
+     * the key XOR the count, so a slot torn by two threads writing at once
+     * fails the check and is treated as empty.
+     */
+    private static final class Table {
+        private final long[] checks;
+        private final long[] counts;
+        private final int mask;
+
+        Table(int megabytes) {
+            int slots = Integer.highestOneBit((int) Math.min(1L << 30, megabytes * (1L << 20) / 16));
+            checks = new long[slots];
+            counts = new long[slots];
+            mask = slots - 1;
+        }
+
+        long probe(long key, int depth) {
+            long hash = hash(key, depth);
+            int index = (int) hash & mask;
+            long count = counts[index];
+            return ((checks[index] ^ count) == hash && count != 0) ? count : -1;
+        }
+
+        void store(long key, int depth, long count) {
+            long hash = hash(key, depth);
+            int index = (int) hash & mask;
+            counts[index] = count;
+            checks[index] = hash ^ count;
+        }
+
+        private static long hash(long key, int depth) {
+            return key ^ (depth * 0x9E3779B97F4A7C15L);
+        }
+    }
+
+    public static void main(String[] args) {
+        int threads = 1;
+        int hashMegabytes = 0;
+        long maxNodes = 10_000_000L;
+        int depth = 5;
+        String fen = null;
+
+        for(int i = 0; i < args.length; i++) {
+            switch(args[i]) {
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                case "--hash" -> hashMegabytes = Integer.parseInt(args[++i]);
+                case "--max-nodes" -> maxNodes = Long.parseLong(args[++i]);
+                case "--depth" -> depth = Integer.parseInt(args[++i]);
+                case "--fen" -> fen = args[++i];
+                default -> {
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+                }
+            }
+        }
+
+        if(fen != null) {
+            long start = System.nanoTime();
+            Map<ChessMove, Long> counts = divide(Fen.parse(fen), depth, threads, hashMegabytes);
+            long total = 0;
+            for(Map.Entry<ChessMove, Long> entry : counts.entrySet()) {
+                System.out.println(moveName(entry.getKey()) + ": " + entry.getValue());
+                total += entry.getValue();
+            }
+            printResult("total", depth, total, -1, System.nanoTime() - start);
+            return;
+        }
+
+        boolean passed = true;
+        for(Position position : SUITE) {
+            int suiteDepth = 0;
+            while(suiteDepth < position.counts().length && position.counts()[suiteDepth] <= maxNodes) {
+                suiteDepth++;
+            }
+            if(suiteDepth == 0) {
+                continue;
+            }
+
+            long start = System.nanoTime();
+            long nodes = 0;
+            for(long count : divide(Fen.parse(position.fen()), suiteDepth, threads, hashMegabytes).values()) {
+                nodes += count;
+            }
+            long expected = position.counts()[suiteDepth - 1];
+            printResult(position.name(), suiteDepth, nodes, expected, System.nanoTime() - start);
+            passed &= nodes == expected;
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static void printResult(String name, int depth, long nodes, long expected, long nanos) {
+        double seconds = nanos / 1e9;
+        String status = (expected < 0) ? "" : (nodes == expected ? "  OK" : "  FAIL (expected " + expected + ")");
+        System.out.printf("%-28s depth %d  %,14d nodes  %8.3f s  %,12.0f nps%s%n",
+                name, depth, nodes, seconds, nodes / Math.max(seconds, 1e-9), status);
+    }
+
+    private static String moveName(ChessMove move) {
+        int from = Bitboards.square(move.getStartPosition());
+        int to = Bitboards.square(move.getEndPosition());
+        PieceType promotion = move.getPromotionPiece();
+        return Move.toString(promotion == null ? Move.of(from, to) : Move.promotion(from, to, promotion));
+    }
+}
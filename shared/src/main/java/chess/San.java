@@ -0,0 +1,105 @@
+package chess;
+
+import chess.ChessPiece.PieceType;
+
+/**
+ * Reads moves in Standard Algebraic Notation, such as "Nf3", "exd5",
+ * "R1e2", "O-O" or "e8=Q+"
+ * <p>
+ * Check and annotation marks are ignored. A move is found by matching
+ * the notation against the legal moves of the position, so it must be
+ * legal and unambiguous.
+ */
+public final class San {
+
+    private static final String PIECE_CHARS = "KQBNR";
+
+    private San() { }
+
+    /**
+     * @param game the position the move is played from
+     * @param san  the move
+     * @return the packed move
+     * @throws IllegalArgumentException if the text is not a legal,
+     *                                  unambiguous move in the position
+     */
+    public static int parse(ChessGame game, String san) {
+        String text = san.replaceAll("[+#!?]", "").replace("e.p.", "");
+        MoveList moves = new MoveList();
+        game.legalMoves(moves);
+
+        if(text.equals("O-O") || text.equals("0-0") || text.equals("O-O-O") || text.equals("0-0-0")) {
+            int column = (text.length() == 3) ? 7 : 3;
+            for(int i = 0; i < moves.size(); i++) {
+                int move = moves.get(i);
+                if(Move.flag(move) == Move.CASTLE && Bitboards.column(Move.to(move)) == column) {
+                    return move;
+                }
+            }
+            throw new IllegalArgumentException("Illegal castle: " + san);
+        }
+
+        PieceType type = PieceType.PAWN;
+        int start = 0;
+        if(!text.isEmpty() && PIECE_CHARS.indexOf(text.charAt(0)) >= 0) {
+            type = typeOf(text.charAt(0));
+            start = 1;
+        }
+
+        PieceType promotion = null;
+        int end = text.length();
+        if(type == PieceType.PAWN && end > 0 && PIECE_CHARS.indexOf(text.charAt(end - 1)) >= 0) {
+            promotion = typeOf(text.charAt(end - 1));
+            end -= (end > 1 && text.charAt(end - 2) == '=') ? 2 : 1;
+        }
+        if(end - start < 2) {
+            throw new IllegalArgumentException("Bad move: " + san);
+        }
+
+        int to = Fen.parseSquare(text.substring(end - 2, end));
+        int fromColumn = 0;
+        int fromRow = 0;
+        for(char c : text.substring(start, end - 2).toCharArray()) {
+            if(c >= 'a' && c <= 'h') {
+                fromColumn = c - 'a' + 1;
+            }
+            else if(c >= '1' && c <= '8') {
+                fromRow = c - '0';
+            }
+            else if(c != 'x' && c != ':') {
+                throw new IllegalArgumentException("Bad move: " + san);
+            }
+        }
+
+        ChessBoard board = game.getBoard();
+        int found = Move.NONE;
+        for(int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int from = Move.from(move);
+            if(Move.to(move) != to || Move.promotion(move) != promotion || Move.flag(move) == Move.CASTLE
+                    || Bitboards.typeOf(board.pieceAt(from)) != type
+                    || (fromColumn != 0 && Bitboards.column(from) != fromColumn)
+                    || (fromRow != 0 && Bitboards.row(from) != fromRow)) {
+                continue;
+            }
+            if(found != Move.NONE) {
+                throw new IllegalArgumentException("Ambiguous move: " + san);
+            }
+            found = move;
+        }
+        if(found == Move.NONE) {
+            throw new IllegalArgumentException("Illegal move: " + san);
+        }
+        return found;
+    }
+
+    private static PieceType typeOf(char c) {
+        return switch(c) {
+            case 'K' -> PieceType.KING;
+            case 'Q' -> PieceType.QUEEN;
+            case 'B' -> PieceType.BISHOP;
+            case 'N' -> PieceType.KNIGHT;
+            default -> PieceType.ROOK;
+        };
+    }
+}
@@ -0,0 +1,235 @@
+package chess;
+
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece.PieceType;
+
+/**
+ * Static exchange evaluation: the material won or lost by a capture once
+ * both sides have made every profitable recapture on its square
+ * <p>
+ * Each side recaptures with its least valuable attacker and may stop
+ * whenever going on would lose material. Sliders hidden behind a piece
+ * that has just captured join in as it leaves, so batteries count. Pins
+ * and checks elsewhere on the board are ignored. Everything works on the
+ * bitboards, and the exchange is followed by recursion, not an array, so
+ * nothing is allocated.
+ */
+public final class StaticExchange {
+
+    //Centipawn values in PieceType order: king, queen, bishop, knight, rook, pawn
+    private static final int[] VALUES = {20000, 900, 330, 320, 500, 100};
+
+    //Least valuable first, the order attackers recapture in
+    private static final PieceType[] CAPTURE_ORDER = {
+            PieceType.PAWN, PieceType.KNIGHT, PieceType.BISHOP, PieceType.ROOK, PieceType.QUEEN, PieceType.KING
+    };
+
+    private StaticExchange() { }
+
+    /**
+     * @return the centipawn value of a piece type. The king's outweighs
+     * any material, so an exchange that loses it never pays.
+     */
+    public static int value(PieceType type) {
+        return VALUES[type.ordinal()];
+    }
+
+    /**
+     * @param board the position before the move
+     * @param move  a packed capture, promotion or quiet move
+     * @return the material the moving side gains by the exchange, in
+     * centipawns; negative if it loses material
+     */
+    public static int see(ChessBoard board, int move) {
+        return start(board, move, 0, true);
+    }
+
+    /**
+     * Answers whether {@link #see} would be at least a threshold, for
+     * less work: instead of playing the exchange out, it keeps only how far
+     * the side that captured last stands from the threshold, and stops as
+     * soon as the other side can no longer change which side of it the
+     * exchange ends on
+     *
+     * @param board     the position before the move
+     * @param move      a packed capture, promotion or quiet move
+     * @param threshold the least material, in centipawns, the moving side must gain
+     * @return whether the exchange wins at least threshold centipawns
+     */
+    public static boolean seeAtLeast(ChessBoard board, int move, int threshold) {
+        return start(board, move, threshold, false) != 0;
+    }
+
+    /**
+     * Makes the move's capture and finds the first recapturers, then
+     * plays the exchange out
+     *
+     * @param exact whether to return the material the exchange gains, as
+     *              {@link #see} does, rather than 1 if it gains at least
+     *              threshold and 0 if not
+     */
+    private static int start(ChessBoard board, int move, int threshold, boolean exact) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int moverIndex = board.pieceAt(from);
+        TeamColor color = Bitboards.colorOf(moverIndex);
+        long occupancy = board.getOccupancy() ^ Bitboards.bit(from);
+
+        int gain;
+        if(Move.flag(move) == Move.EN_PASSANT) {
+            gain = VALUES[PieceType.PAWN.ordinal()];
+            occupancy ^= Bitboards.bit(Bitboards.square(Bitboards.row(from), Bitboards.column(to)));
+        }
+        else {
+            int victim = board.pieceAt(to);
+            gain = (victim >= 0) ? VALUES[Bitboards.typeOf(victim).ordinal()] : 0;
+        }
+
+        int onSquare = VALUES[Bitboards.typeOf(moverIndex).ordinal()];
+        PieceType promotion = Move.promotion(move);
+        if(promotion != null) {
+            gain += VALUES[promotion.ordinal()] - VALUES[PieceType.PAWN.ordinal()];
+            onSquare = VALUES[promotion.ordinal()];
+        }
+
+        long attackers = board.attackersTo(to, occupancy) & occupancy;
+        if(exact) {
+            return gain - exchange(board, to, occupancy, attackers, color.opponent(), onSquare);
+        }
+        return atLeast(board, to, occupancy, attackers, color, gain - threshold, onSquare) ? 1 : 0;
+    }
+
+    /**
+     * Finds pieces the other team can win material by capturing, which is
+     * a cheap way to spot blunders without searching
+     *
+     * @param board the position
+     * @param color the team whose pieces to check
+     * @return bitboard of the team's pieces, other than the king, that are
+     * lost to some capture
+     */
+    public static long hangingPieces(ChessBoard board, TeamColor color) {
+        long enemies = board.getOccupancy(color.opponent());
+        long pieces = board.getOccupancy(color) & ~board.getBitboard(color, PieceType.KING);
+        long hanging = 0L;
+        while(pieces != 0) {
+            int square = Bitboards.firstSquare(pieces);
+            long attackers = board.attackersTo(square, board.getOccupancy()) & enemies;
+            while(attackers != 0) {
+                if(see(board, Move.of(Bitboards.firstSquare(attackers), square)) > 0) {
+                    hanging |= Bitboards.bit(square);
+                    break;
+                }
+                attackers &= attackers - 1;
+            }
+            pieces &= pieces - 1;
+        }
+        return hanging;
+    }
+
+    /**
+     * The swap loop of {@link #seeAtLeast}
+     *
+     * @param swap     how far the capture alone puts the moving side above the threshold
+     * @param onSquare the value of the piece that made the capture
+     */
+    private static boolean atLeast(ChessBoard board, int square, long occupancy, long attackers,
+                                   TeamColor color, int swap, int onSquare) {
+        //Short of the threshold even if nothing recaptures
+        if(swap < 0) {
+            return false;
+        }
+        //Still at the threshold even if the moved piece is lost for nothing
+        swap = onSquare - swap;
+        if(swap <= 0) {
+            return true;
+        }
+
+        //Whether the moving side reaches the threshold if the exchange stops here
+        boolean atLeast = true;
+        TeamColor side = color;
+        while(true) {
+            side = side.opponent();
+            attackers &= occupancy;
+            long ours = attackers & board.getOccupancy(side);
+            if(ours == 0) {
+                break;
+            }
+            atLeast = !atLeast;
+
+            PieceType type = PieceType.KING;
+            long candidates = 0L;
+            for(PieceType next : CAPTURE_ORDER) {
+                candidates = ours & board.getBitboard(side, next);
+                if(candidates != 0) {
+                    type = next;
+                    break;
+                }
+            }
+            //The king may only recapture when nothing defends the square
+            if(type == PieceType.KING) {
+                return (attackers & board.getOccupancy(side.opponent())) != 0 ? !atLeast : atLeast;
+            }
+
+            //Stop once losing the recapturing piece can no longer change the outcome
+            swap = VALUES[type.ordinal()] - swap;
+            if(swap < (atLeast ? 1 : 0)) {
+                break;
+            }
+            occupancy ^= candidates & -candidates;
+            attackers = revealXrays(board, square, occupancy, attackers, type);
+        }
+        return atLeast;
+    }
+
+    /**
+     * @param onSquare the value of the piece the team would capture
+     * @return the most the team to recapture can win on the square, which
+     * is 0 if it is better off not recapturing
+     */
+    private static int exchange(ChessBoard board, int square, long occupancy, long attackers,
+                                TeamColor color, int onSquare) {
+        long ours = attackers & board.getOccupancy(color);
+        if(ours == 0) {
+            return 0;
+        }
+
+        for(PieceType type : CAPTURE_ORDER) {
+            long candidates = ours & board.getBitboard(color, type);
+            if(candidates == 0) {
+                continue;
+            }
+            //The king may only recapture when nothing defends the square
+            if(type == PieceType.KING && (attackers & board.getOccupancy(color.opponent())) != 0) {
+                return 0;
+            }
+
+            long bit = candidates & -candidates;
+            occupancy ^= bit;
+            attackers = revealXrays(board, square, occupancy, attackers, type) & occupancy;
+            int reply = exchange(board, square, occupancy, attackers, color.opponent(), VALUES[type.ordinal()]);
+            return Math.max(0, onSquare - reply);
+        }
+        return 0;
+    }
+
+    /**
+     * Adds the sliders that attack the square through the piece that just
+     * left it
+     */
+    private static long revealXrays(ChessBoard board, int square, long occupancy, long attackers, PieceType moved) {
+        long queens = board.getBitboard(TeamColor.WHITE, PieceType.QUEEN)
+                | board.getBitboard(TeamColor.BLACK, PieceType.QUEEN);
+        if(moved == PieceType.PAWN || moved == PieceType.BISHOP || moved == PieceType.QUEEN) {
+            long bishops = board.getBitboard(TeamColor.WHITE, PieceType.BISHOP)
+                    | board.getBitboard(TeamColor.BLACK, PieceType.BISHOP) | queens;
+            attackers |= Attacks.bishopAttacks(square, occupancy) & bishops;
+        }
+        if(moved == PieceType.ROOK || moved == PieceType.QUEEN) {
+            long rooks = board.getBitboard(TeamColor.WHITE, PieceType.ROOK)
+                    | board.getBitboard(TeamColor.BLACK, PieceType.ROOK) | queens;
+            attackers |= Attacks.rookAttacks(square, occupancy) & rooks;
+        }
+        return attackers;
+    }
+}
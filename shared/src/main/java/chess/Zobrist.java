@@ -0,0 +1,75 @@
+package chess;
+
+/**
+ * Random keys for Zobrist hashing
+ * <p>
+ * A position's key is the XOR of one key per piece on its square, one
+ * per castling right, one for the en passant column and one when white is
+ * to move. The keys come from a fixed seed, so a position hashes to the
+ * same value on every JVM and the keys can be stored.
+ */
+public final class Zobrist {
+
+    private static final long[][] PIECE_SQUARE = new long[Bitboards.PIECE_KINDS][64];
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EN_PASSANT_COLUMN = new long[8];
+    private static final long WHITE_TO_MOVE;
+
+    static {
+        long[] seed = {0x2545F4914F6CDD1DL};
+        for(int pieceIndex = 0; pieceIndex < Bitboards.PIECE_KINDS; pieceIndex++) {
+            for(int square = 0; square < 64; square++) {
+                PIECE_SQUARE[pieceIndex][square] = nextRandom(seed);
+            }
+        }
+
+        //One key per right, combined so any set of rights is one lookup
+        long[] rights = new long[4];
+        for(int i = 0; i < rights.length; i++) {
+            rights[i] = nextRandom(seed);
+        }
+        for(int mask = 0; mask < CASTLING.length; mask++) {
+            for(int i = 0; i < rights.length; i++) {
+                if((mask & (1 << i)) != 0) {
+                    CASTLING[mask] ^= rights[i];
+                }
+            }
+        }
+
+        for(int col = 0; col < 8; col++) {
+            EN_PASSANT_COLUMN[col] = nextRandom(seed);
+        }
+        WHITE_TO_MOVE = nextRandom(seed);
+    }
+
+    private Zobrist() { }
+
+    public static long piece(int pieceIndex, int square) {
+        return PIECE_SQUARE[pieceIndex][square];
+    }
+
+    public static long castling(int castlingRights) {
+        return CASTLING[castlingRights];
+    }
+
+    /**
+     * @return the key for an en passant target square, or 0 for none
+     */
+    public static long enPassant(int square) {
+        return square < 0 ? 0L : EN_PASSANT_COLUMN[square & 7];
+    }
+
+    public static long whiteToMove() {
+        return WHITE_TO_MOVE;
+    }
+
+    /**
+     * splitmix64, which spreads consecutive seeds into well mixed keys
+     */
+    private static long nextRandom(long[] seed) {
+        long z = (seed[0] += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,164 @@
+package chess.engine;
+
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece.PieceType;
+import chess.Move;
+
+/**
+ * The hidden layer of a {@link Network} for each position on the search
+ * path, kept up to date as moves are made and unmade
+ * <p>
+ * Each ply has both sides' accumulators. Making a move copies them from
+ * the ply before and adds and subtracts the weight rows of the inputs the
+ * move changes. When a king moves, or castles, its side's accumulator is
+ * only marked for a full recompute, which happens once the position is
+ * evaluated or another move is made from it. Unmaking a move just drops
+ * back a ply.
+ */
+final class Accumulators {
+
+    private static final int WHITE = TeamColor.WHITE.ordinal();
+    private static final int BLACK = TeamColor.BLACK.ordinal();
+
+    private final Network network;
+    private final NetworkMath math;
+    private final short[][][] stack;
+    private final boolean[][] stale;
+    private int top;
+
+    /**
+     * @param plies the most moves deep the search path can go
+     */
+    Accumulators(Network network, NetworkMath math, int plies) {
+        this.network = network;
+        this.math = math;
+        stack = new short[plies + 1][2][network.hiddenSize];
+        stale = new boolean[plies + 1][2];
+        reset();
+    }
+
+    /**
+     * Empties the stack, so the next position evaluated or moved from is
+     * computed from scratch as the bottom of it
+     */
+    void reset() {
+        top = 0;
+        stale[0][WHITE] = true;
+        stale[0][BLACK] = true;
+    }
+
+    /**
+     * Pushes the accumulators of the position after a move
+     *
+     * @param board the position before the move is made on it
+     */
+    void push(ChessBoard board, int move) {
+        for(TeamColor perspective : TeamColor.values()) {
+            if(stale[top][perspective.ordinal()]) {
+                refresh(board, perspective);
+            }
+        }
+
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int mover = board.pieceAt(from);
+        TeamColor moverColor = Bitboards.colorOf(mover);
+        int placed = (Move.promotion(move) == null) ? mover : Bitboards.pieceIndex(moverColor, Move.promotion(move));
+        int capturedSquare = (Move.flag(move) == Move.EN_PASSANT)
+                ? Bitboards.square(Bitboards.row(from), Bitboards.column(to)) : to;
+        int captured = board.pieceAt(capturedSquare);
+        boolean kingMoved = Bitboards.typeOf(mover) == PieceType.KING;
+
+        int parent = top++;
+        for(TeamColor perspective : TeamColor.values()) {
+            int side = perspective.ordinal();
+            if(Move.flag(move) == Move.CASTLE || (kingMoved && moverColor == perspective)) {
+                stale[top][side] = true;
+                continue;
+            }
+            stale[top][side] = false;
+            short[] accumulator = stack[top][side];
+            System.arraycopy(stack[parent][side], 0, accumulator, 0, accumulator.length);
+            int kingSquare = Bitboards.firstSquare(board.getBitboard(perspective, PieceType.KING));
+            update(accumulator, Network.feature(perspective, kingSquare, mover, from), false);
+            update(accumulator, Network.feature(perspective, kingSquare, placed, to), true);
+            if(captured >= 0) {
+                update(accumulator, Network.feature(perspective, kingSquare, captured, capturedSquare), false);
+            }
+        }
+    }
+
+    /**
+     * Pushes a copy of the current accumulators, for a null move
+     */
+    void pushNull() {
+        int parent = top++;
+        for(int side = 0; side < 2; side++) {
+            stale[top][side] = stale[parent][side];
+            System.arraycopy(stack[parent][side], 0, stack[top][side], 0, stack[top][side].length);
+        }
+    }
+
+    /**
+     * Drops back to the accumulators before the last move
+     */
+    void pop() {
+        top--;
+    }
+
+    /**
+     * @param board the position the top of the stack belongs to
+     * @return the network's score in centipawns, from the side to move
+     */
+    int evaluate(ChessBoard board, TeamColor sideToMove) {
+        for(TeamColor perspective : TeamColor.values()) {
+            if(stale[top][perspective.ordinal()]) {
+                refresh(board, perspective);
+            }
+        }
+        int hiddenSize = network.hiddenSize;
+        long sum = network.outputBias
+                + math.activate(stack[top][sideToMove.ordinal()], network.outputWeights, 0)
+                + math.activate(stack[top][sideToMove.opponent().ordinal()], network.outputWeights, hiddenSize);
+        return (int) (sum * Network.OUTPUT_SCALE / (Network.ACTIVATION_LIMIT * Network.OUTPUT_WEIGHT_SCALE));
+    }
+
+    /**
+     * @return a copy of one side's accumulator at the top of the stack
+     */
+    short[] accumulator(ChessBoard board, TeamColor perspective) {
+        if(stale[top][perspective.ordinal()]) {
+            refresh(board, perspective);
+        }
+        return stack[top][perspective.ordinal()].clone();
+    }
+
+    private void refresh(ChessBoard board, TeamColor perspective) {
+        short[] accumulator = stack[top][perspective.ordinal()];
+        System.arraycopy(network.hiddenBiases, 0, accumulator, 0, accumulator.length);
+        int kingSquare = Bitboards.firstSquare(board.getBitboard(perspective, PieceType.KING));
+        for(int pieceIndex = 0; pieceIndex < Bitboards.PIECE_KINDS; pieceIndex++) {
+            long pieces = board.getBitboard(Bitboards.colorOf(pieceIndex), Bitboards.typeOf(pieceIndex));
+            while(pieces != 0) {
+                update(accumulator, Network.feature(perspective, kingSquare, pieceIndex, Bitboards.firstSquare(pieces)),
+                        true);
+                pieces &= pieces - 1;
+            }
+        }
+        stale[top][perspective.ordinal()] = false;
+    }
+
+    private void update(short[] accumulator, int feature, boolean add) {
+        if(feature < 0) {
+            return;
+        }
+        if(add) {
+            math.add(accumulator, network.featureWeights, feature * network.hiddenSize);
+        }
+        else {
+            math.subtract(accumulator, network.featureWeights, feature * network.hiddenSize);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package chess.engine;
+
+import chess.Fen;
+import chess.Move;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Searches a fixed set of positions and reports nodes and speed, which
+ * is the number to compare between machines and between engine changes
+ * <pre>
+ * java chess.engine.Bench [--depth D] [--hash MB] [--threads N] [--scaling MAX_THREADS] [--nnue FILE]
+ *                          [--disable FEATURE,...] [--features] [--stats] [--multipv LINES]
+ * </pre>
+ * {@code --multipv} times a multi-PV search of each position against
+ * finding the same lines with separate searches, each with a fresh table
+ * and without the moves found before.
+ * {@code --stats} adds each search's {@link SearchStats} under its line.
+ * {@code --features} runs the suite once with every {@link SearchFeature}
+ * and once more with each switched off, to show what each is worth.
+ */
+public final class Bench {
+
+    public static final List<String> POSITIONS = List.of(
+            Fen.START_POSITION,
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "r1bqkbnr/pppp1ppp/2n5/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R b KQkq - 3 3",
+            "r2q1rk1/pp2bppp/2n1pn2/3p4/3P4/2NBPN2/PP3PPP/R2Q1RK1 w - - 0 10",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1"
+    );
+
+    private Bench() { }
+
+    public static void main(String[] args) throws IOException {
+        int depth = 5;
+        int hashMegabytes = Engine.DEFAULT_HASH_MEGABYTES;
+        int threads = 1;
+        int scalingThreads = 0;
+        Network network = null;
+        Set<SearchFeature> features = EnumSet.allOf(SearchFeature.class);
+        boolean compareFeatures = false;
+        boolean stats = false;
+        int multiPv = 0;
+        for(int i = 0; i < args.length; i++) {
+            switch(args[i]) {
+                case "--depth" -> depth = Integer.parseInt(args[++i]);
+                case "--hash" -> hashMegabytes = Integer.parseInt(args[++i]);
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                case "--scaling" -> scalingThreads = Integer.parseInt(args[++i]);
+                case "--nnue" -> network = Network.load(Path.of(args[++i]));
+                case "--disable" -> {
+                    for(String name : args[++i].split(",")) {
+                        features.remove(SearchFeature.valueOf(name.trim().toUpperCase()));
+                    }
+                }
+                case "--features" -> compareFeatures = true;
+                case "--stats" -> stats = true;
+                case "--multipv" -> multiPv = Integer.parseInt(args[++i]);
+                default -> {
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+                }
+            }
+        }
+
+        if(scalingThreads > 0) {
+            scaling(depth, hashMegabytes, scalingThreads);
+            return;
+        }
+        if(multiPv > 0) {
+            compareMultiPv(depth, hashMegabytes, multiPv);
+            return;
+        }
+        if(compareFeatures) {
+            compareFeatures(depth, hashMegabytes);
+            return;
+        }
+
+        try(Engine engine = new Engine(hashMegabytes, threads)) {
+            engine.setNetwork(network);
+            engine.setFeatures(features);
+            long[] totals = run(engine, depth, true, stats);
+            System.out.printf("total  %,d nodes  %.3f s  %,d nps%n",
+                    totals[0], totals[1] / 1e9, totals[0] * 1_000_000_000L / Math.max(totals[1], 1));
+        }
+    }
+
+    /**
+     * Times the suite to a fixed depth with 1, 2, 4 ... up to maxThreads
+     * threads. Time to depth, not nodes per second, is what shows whether
+     * the extra threads help, since helpers also search nodes the main
+     * thread never needed.
+     */
+    private static void scaling(int depth, int hashMegabytes, int maxThreads) {
+        long baseNanos = 0;
+        for(int threads = 1; threads <= maxThreads; threads *= 2) {
+            long[] totals;
+            try(Engine engine = new Engine(hashMegabytes, threads)) {
+                totals = run(engine, depth, false, false);
+            }
+            if(threads == 1) {
+                baseNanos = totals[1];
+            }
+            System.out.printf("%2d threads  depth %d  %8.3f s  speedup %5.2f  %,14d nodes  %,12d nps%n",
+                    threads, depth, totals[1] / 1e9, (double) baseNanos / Math.max(totals[1], 1),
+                    totals[0], totals[0] * 1_000_000_000L / Math.max(totals[1], 1));
+        }
+    }
+
+    /**
+     * Times the suite to a fixed depth with every feature, then with each
+     * one switched off and with all of them off. Nodes to depth is the
+     * fair comparison; time shows whether the savings outweigh the cost.
+     */
+    private static void compareFeatures(int depth, int hashMegabytes) {
+        try(Engine engine = new Engine(hashMegabytes)) {
+            long[] base = run(engine, depth, false, false);
+            System.out.printf("%-22s %,14d nodes  %8.3f s%n", "all features", base[0], base[1] / 1e9);
+            for(SearchFeature feature : SearchFeature.values()) {
+                Set<SearchFeature> features = EnumSet.allOf(SearchFeature.class);
+                features.remove(feature);
+                engine.setFeatures(features);
+                long[] totals = run(engine, depth, false, false);
+                System.out.printf("%-22s %,14d nodes  %8.3f s  x%.2f nodes%n", "no " + feature.name().toLowerCase(),
+                        totals[0], totals[1] / 1e9, (double) totals[0] / Math.max(base[0], 1));
+            }
+            engine.setFeatures(EnumSet.noneOf(SearchFeature.class));
+            long[] totals = run(engine, depth, false, false);
+            System.out.printf("%-22s %,14d nodes  %8.3f s  x%.2f nodes%n", "no features",
+                    totals[0], totals[1] / 1e9, (double) totals[0] / Math.max(base[0], 1));
+        }
+    }
+
+    /**
+     * Searches each position once for several lines, then finds the same
+     * number of lines with separate searches, each with a fresh table and
+     * without the moves the searches before it chose
+     */
+    private static void compareMultiPv(int depth, int hashMegabytes, int lines) {
+        try(Engine engine = new Engine(hashMegabytes)) {
+            //Warm up first, or whichever way runs first pays for compiling the search
+            run(engine, depth, false, false);
+            engine.setMultiPv(lines);
+            long multiNodes = 0;
+            long multiNanos = 0;
+            long separateNodes = 0;
+            long separateNanos = 0;
+            for(String fen : POSITIONS) {
+                engine.clearHash();
+                SearchResult multi = engine.search(Fen.parse(fen), SearchLimits.depth(depth)).join();
+                multiNodes += multi.nodes();
+                multiNanos += multi.nanos();
+
+                List<SearchResult.Line> separate = new ArrayList<>();
+                long nodes = 0;
+                long nanos = 0;
+                for(int line = 0; line < multi.lines().size(); line++) {
+                    Searcher searcher = new Searcher(Fen.parse(fen), new TranspositionTable(hashMegabytes),
+                            SearchLimits.depth(depth), new AtomicBoolean(), 0, null, null, engine.getFeatures(),
+                            null, 1);
+                    for(SearchResult.Line found : separate) {
+                        searcher.excludeRootMove(found.move());
+                    }
+                    SearchResult result = searcher.run();
+                    separate.add(result.lines().get(0));
+                    nodes += result.nodes();
+                    nanos += result.nanos();
+                }
+                separateNodes += nodes;
+                separateNanos += nanos;
+
+                System.out.printf("multi-pv %,12d nodes %8.3f s  separate %,12d nodes %8.3f s  %s%n",
+                        multi.nodes(), multi.nanos() / 1e9, nodes, nanos / 1e9, fen);
+                System.out.printf("    %s%n    %s%n", describe(multi.lines()), describe(separate));
+            }
+            System.out.printf("total  multi-pv %,d nodes %.3f s  separate %,d nodes %.3f s  x%.2f nodes  "
+                            + "x%.2f time%n", multiNodes, multiNanos / 1e9, separateNodes, separateNanos / 1e9,
+                    (double) separateNodes / Math.max(multiNodes, 1),
+                    (double) separateNanos / Math.max(multiNanos, 1));
+        }
+    }
+
+    private static String describe(List<SearchResult.Line> lines) {
+        StringBuilder builder = new StringBuilder();
+        for(SearchResult.Line line : lines) {
+            builder.append(String.format("%-6s %6d  ", Move.toString(line.move()), line.score()));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return the total nodes and nanoseconds of searching every position
+     */
+    private static long[] run(Engine engine, int depth, boolean print, boolean stats) {
+        long totalNodes = 0;
+        long totalNanos = 0;
+        for(String fen : POSITIONS) {
+            engine.clearHash();
+            SearchResult result = engine.search(Fen.parse(fen), SearchLimits.depth(depth)).join();
+            totalNodes += result.nodes();
+            totalNanos += result.nanos();
+            if(print) {
+                System.out.printf("%-6s %6d cp  depth %2d  %,12d nodes  %8.3f s  %,10d nps  %s%n",
+                        Move.toString(result.bestMove()), result.score(), result.depth(), result.nodes(),
+                        result.nanos() / 1e9, result.nps(), fen);
+                if(stats) {
+                    System.out.println("       " + result.stats());
+                }
+            }
+        }
+        return new long[] {totalNodes, totalNanos};
+    }
+}
@@ -0,0 +1,236 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessGame.TeamColor;
+import chess.Fen;
+import chess.San;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles an {@link OpeningBook} from games in Portable Game Notation
+ * <p>
+ * The first moves of each game are counted in the Polyglot way: a move
+ * earns 2 for the side that played it if that side won, 1 for a draw or
+ * unknown result and nothing for a loss. Moves that earn nothing in total
+ * are left out. Comments, variations and annotations are skipped. A game
+ * stops counting at its first move that cannot be read, so one bad game
+ * does not spoil the rest.
+ * <pre>
+ * java chess.engine.BookBuilder OUTPUT.bin GAMES.pgn... [--plies N]
+ * </pre>
+ */
+public final class BookBuilder {
+
+    public static final int DEFAULT_MAX_PLIES = 30;
+
+    private static final int MAX_WEIGHT = 0xFFFF;
+
+    private final int maxPlies;
+    private final Map<BookMove, Integer> weights = new HashMap<>();
+    private int games;
+
+    public BookBuilder() {
+        this(DEFAULT_MAX_PLIES);
+    }
+
+    /**
+     * @param maxPlies how many moves of each game, counting both sides, to add to the book
+     */
+    public BookBuilder(int maxPlies) {
+        this.maxPlies = maxPlies;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int maxPlies = DEFAULT_MAX_PLIES;
+        List<Path> inputs = new ArrayList<>();
+        for(int i = 0; i < args.length; i++) {
+            if(args[i].equals("--plies")) {
+                maxPlies = Integer.parseInt(args[++i]);
+            }
+            else {
+                inputs.add(Path.of(args[i]));
+            }
+        }
+        if(inputs.size() < 2) {
+            System.err.println("Usage: BookBuilder OUTPUT.bin GAMES.pgn... [--plies N]");
+            System.exit(2);
+        }
+
+        BookBuilder builder = new BookBuilder(maxPlies);
+        for(Path input : inputs.subList(1, inputs.size())) {
+            try(Reader reader = Files.newBufferedReader(input)) {
+                builder.addGames(reader);
+            }
+        }
+        int entries = builder.write(inputs.get(0));
+        System.out.printf("%,d games  %,d entries%n", builder.getGames(), entries);
+    }
+
+    /**
+     * Adds every game read from PGN text
+     */
+    public void addGames(Reader pgn) throws IOException {
+        BufferedReader reader = new BufferedReader(pgn);
+        Map<String, String> tags = new HashMap<>();
+        StringBuilder moveText = new StringBuilder();
+        String line;
+        while((line = reader.readLine()) != null) {
+            String trimmed = line.trim();
+            if(trimmed.startsWith("[")) {
+                if(!moveText.isEmpty()) {
+                    addGame(tags, moveText.toString());
+                    tags.clear();
+                    moveText.setLength(0);
+                }
+                int space = trimmed.indexOf(' ');
+                int firstQuote = trimmed.indexOf('"');
+                int lastQuote = trimmed.lastIndexOf('"');
+                if(space > 1 && firstQuote > space && lastQuote > firstQuote) {
+                    tags.put(trimmed.substring(1, space), trimmed.substring(firstQuote + 1, lastQuote));
+                }
+            }
+            else {
+                moveText.append(line).append('\n');
+            }
+        }
+        if(!moveText.isEmpty() || !tags.isEmpty()) {
+            addGame(tags, moveText.toString());
+        }
+    }
+
+    public int getGames() {
+        return games;
+    }
+
+    /**
+     * Writes the book, sorted for {@link OpeningBook}
+     *
+     * @return the number of entries written
+     */
+    public int write(Path path) throws IOException {
+        List<Map.Entry<BookMove, Integer>> sorted = new ArrayList<>();
+        for(Map.Entry<BookMove, Integer> entry : weights.entrySet()) {
+            if(entry.getValue() > 0) {
+                sorted.add(entry);
+            }
+        }
+        sorted.sort((first, second) -> {
+            int byKey = Long.compareUnsigned(first.getKey().key(), second.getKey().key());
+            return byKey != 0 ? byKey : Integer.compare(second.getValue(), first.getValue());
+        });
+
+        ByteBuffer buffer = ByteBuffer.allocate(sorted.size() * OpeningBook.ENTRY_BYTES);
+        for(Map.Entry<BookMove, Integer> entry : sorted) {
+            buffer.putLong(entry.getKey().key())
+                    .putShort((short) entry.getKey().move())
+                    .putShort((short) Math.min(entry.getValue(), MAX_WEIGHT))
+                    .putInt(0);
+        }
+        buffer.flip();
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while(buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        return sorted.size();
+    }
+
+    private void addGame(Map<String, String> tags, String moveText) {
+        ChessGame game;
+        try {
+            game = tags.containsKey("FEN") ? Fen.parse(tags.get("FEN")) : Fen.parse(Fen.START_POSITION);
+        }
+        catch(IllegalArgumentException ex) {
+            return;
+        }
+        games++;
+        String result = tags.getOrDefault("Result", "*");
+
+        int plies = 0;
+        for(String token : tokens(moveText)) {
+            if(plies >= maxPlies || isResult(token)) {
+                break;
+            }
+            int move;
+            try {
+                move = San.parse(game, token);
+            }
+            catch(IllegalArgumentException ex) {
+                break;
+            }
+            weights.merge(new BookMove(game.polyglotKey(), OpeningBook.encode(move)),
+                    points(result, game.getTeamTurn()), Integer::sum);
+            game.makeMove(move);
+            plies++;
+        }
+    }
+
+    /**
+     * @return the moves of PGN move text, without move numbers, comments,
+     * variations or annotation glyphs
+     */
+    private static List<String> tokens(String moveText) {
+        List<String> tokens = new ArrayList<>();
+        int variationDepth = 0;
+        int i = 0;
+        while(i < moveText.length()) {
+            char c = moveText.charAt(i);
+            if(c == '{') {
+                int close = moveText.indexOf('}', i);
+                i = (close < 0) ? moveText.length() : close + 1;
+            }
+            else if(c == ';') {
+                int newline = moveText.indexOf('\n', i);
+                i = (newline < 0) ? moveText.length() : newline + 1;
+            }
+            else if(c == '(' || c == ')') {
+                variationDepth += (c == '(') ? 1 : -1;
+                i++;
+            }
+            else if(Character.isWhitespace(c)) {
+                i++;
+            }
+            else {
+                int start = i;
+                while(i < moveText.length() && !Character.isWhitespace(moveText.charAt(i))
+                        && "{};()".indexOf(moveText.charAt(i)) < 0) {
+                    i++;
+                }
+                String token = moveText.substring(start, i);
+                //Move numbers may run into the move, as in "12.e4"
+                token = token.replaceFirst("^\\d+\\.+", "");
+                if(variationDepth == 0 && !token.isEmpty() && !token.startsWith("$")) {
+                    tokens.add(token);
+                }
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isResult(String token) {
+        return token.equals("1-0") || token.equals("0-1") || token.equals("1/2-1/2") || token.equals("*");
+    }
+
+    private static int points(String result, TeamColor mover) {
+        return switch(result) {
+            case "1-0" -> mover == TeamColor.WHITE ? 2 : 0;
+            case "0-1" -> mover == TeamColor.BLACK ? 2 : 0;
+            default -> 1;
+        };
+    }
+
+    private record BookMove(long key, int move) { }
+}
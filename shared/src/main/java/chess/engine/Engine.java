@@ -0,0 +1,349 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.Move;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Picks moves by searching ahead from a position
+ * <p>
+ * A search runs on the engine's own thread, so the caller is never
+ * blocked, until one of its limits is reached or {@link #stop()} is
+ * called. One search runs at a time. Results are kept in a transposition
+ * table between searches, so searching the next position of the same
+ * game starts with what was learned in the last one.
+ * <p>
+ * With more than one thread the engine uses Lazy SMP: helper threads
+ * search the same position alongside the main search thread and share
+ * only the transposition table. The main thread's result is returned,
+ * with the nodes of every thread counted.
+ * <p>
+ * Positions are scored by the hand written evaluation unless a
+ * {@link Network} is set. With an {@link OpeningBook} set, positions in
+ * the book are answered from it at once, without searching. With a
+ * {@link Tablebase} set, endings in its tables are scored from them
+ * instead of searched further.
+ * <p>
+ * Every {@link SearchFeature} is on by default, and each can be switched
+ * off to measure what it is worth.
+ * <p>
+ * An engine holds threads until it is closed.
+ */
+public final class Engine implements AutoCloseable {
+
+    public static final int DEFAULT_HASH_MEGABYTES = 16;
+
+    private final TranspositionTable table;
+    private final int threads;
+    private volatile Thread searchingThread;
+    private final ExecutorService searchThread = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "engine-search");
+        thread.setDaemon(true);
+        searchingThread = thread;
+        return thread;
+    });
+    private final ExecutorService helpers;
+    private Network network;
+    private OpeningBook book;
+    private Tablebase tablebase;
+    private Set<SearchFeature> features = EnumSet.allOf(SearchFeature.class);
+    private Consumer<SearchResult> info;
+    private int multiPv = 1;
+    //The search in flight, or null once it has finished
+    private volatile Search running;
+
+    public Engine() {
+        this(DEFAULT_HASH_MEGABYTES);
+    }
+
+    /**
+     * @param hashMegabytes the transposition table size
+     */
+    public Engine(int hashMegabytes) {
+        this(hashMegabytes, 1);
+    }
+
+    /**
+     * @param hashMegabytes the transposition table size
+     * @param threads       how many threads to search with, including the main search thread
+     */
+    public Engine(int hashMegabytes, int threads) {
+        if(threads < 1) {
+            throw new IllegalArgumentException("An engine needs at least one thread");
+        }
+        table = new TranspositionTable(hashMegabytes);
+        this.threads = threads;
+        helpers = (threads == 1) ? null : Executors.newFixedThreadPool(threads - 1, runnable -> {
+            Thread thread = new Thread(runnable, "engine-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts searching a position for its best move and returns at once.
+     * The position is copied before this returns, so the game may change
+     * while the search runs. Cancelling the future stops the search.
+     *
+     * @param game   the position to search, with the team to move to play
+     * @param limits when to stop searching
+     * @return the best move found, with its score and search statistics,
+     * once a limit is reached or {@link #stop()} is called
+     * @throws IllegalStateException if a search is already running
+     */
+    public synchronized CompletableFuture<SearchResult> search(ChessGame game, SearchLimits limits) {
+        if(running != null && !running.result().isDone()) {
+            throw new IllegalStateException("A search is already running");
+        }
+        if(book != null) {
+            long start = System.nanoTime();
+            int bookMove = book.pick(game, ThreadLocalRandom.current());
+            if(bookMove != Move.NONE) {
+                SearchStats stats = new SearchStats(0, 0, System.nanoTime() - start, 0, 0, 0, 0, 0, new long[0],
+                        new long[0]);
+                int[] pv = {bookMove};
+                running = null;
+                return CompletableFuture.completedFuture(new SearchResult(bookMove, 0, 0, pv, stats,
+                        List.of(new SearchResult.Line(0, pv))));
+            }
+        }
+
+        //Each search has its own flags, so a cancelled search still winding down is not restarted by the next
+        AtomicBoolean stopFlag = new AtomicBoolean();
+        AtomicBoolean helperStopFlag = new AtomicBoolean();
+        Searcher main = new Searcher(game, table, limits, stopFlag, 0, network, tablebase, features, info, multiPv);
+        List<Searcher> helperSearchers = new ArrayList<>();
+        for(int helperId = 1; helperId < threads; helperId++) {
+            helperSearchers.add(new Searcher(game, table, SearchLimits.depth(limits.maxDepth()), helperStopFlag,
+                    helperId, network, tablebase, features, null, 1));
+        }
+
+        CompletableFuture<SearchResult> result = new CompletableFuture<>();
+        Search search = new Search(result, stopFlag, helperStopFlag);
+        result.whenComplete((value, ex) -> {
+            if(result.isCancelled()) {
+                search.stop();
+                finished(search);
+            }
+        });
+        running = search;
+        searchThread.execute(() -> {
+            //The search is forgotten before its result is published, so stop() after join() finds nothing running
+            SearchResult found;
+            try {
+                found = run(main, helperSearchers, helperStopFlag);
+            }
+            catch(RuntimeException ex) {
+                finished(search);
+                result.completeExceptionally(ex);
+                return;
+            }
+            finished(search);
+            result.complete(found);
+        });
+        return result;
+    }
+
+    /**
+     * Runs the main search alongside its helpers, then stops the helpers
+     * and adds their counts to its statistics
+     */
+    private SearchResult run(Searcher main, List<Searcher> helperSearchers, AtomicBoolean helperStopFlag) {
+        table.newSearch();
+        List<Future<SearchResult>> helperResults = new ArrayList<>();
+        for(Searcher helper : helperSearchers) {
+            helperResults.add(helpers.submit(helper::run));
+        }
+        SearchResult result;
+        try {
+            result = main.run();
+        }
+        finally {
+            helperStopFlag.set(true);
+        }
+        SearchStats stats = result.stats();
+        for(Future<SearchResult> helperResult : helperResults) {
+            try {
+                stats = stats.plus(helperResult.get().stats());
+            }
+            catch(Exception ex) {
+                throw new IllegalStateException("A search helper failed", ex);
+            }
+        }
+        return new SearchResult(result.bestMove(), result.score(), result.depth(), result.pv(), stats,
+                result.lines());
+    }
+
+    /**
+     * Stops the running search, which then finishes with the best move
+     * from the deepest iteration it finished. The search checks for a stop
+     * at every node, so this returns almost at once. From the info
+     * listener, which runs on the search thread, this only asks the search
+     * to stop and returns null.
+     *
+     * @return the result of the stopped search, or null if none was running
+     */
+    public SearchResult stop() {
+        Search search = running;
+        if(search == null) {
+            return null;
+        }
+        search.stop();
+        CompletableFuture<SearchResult> result = search.result();
+        if(result.isCancelled() || (!result.isDone() && isSearchThread())) {
+            return null;
+        }
+        return result.join();
+    }
+
+    /**
+     * Stops the running search, waits for it to finish, and shuts down the
+     * engine's threads. The engine cannot search again afterwards.
+     */
+    @Override
+    public void close() {
+        Search search = running;
+        if(search != null) {
+            search.stop();
+            if(!isSearchThread()) {
+                search.result().handle((result, ex) -> result).join();
+            }
+        }
+        searchThread.shutdownNow();
+        if(helpers != null) {
+            helpers.shutdownNow();
+        }
+    }
+
+    private synchronized void finished(Search search) {
+        if(running == search) {
+            running = null;
+        }
+    }
+
+    private boolean isSearchThread() {
+        return Thread.currentThread() == searchingThread;
+    }
+
+    /**
+     * Forgets everything learned in earlier searches, such as when a new
+     * game starts
+     */
+    public void clearHash() {
+        table.clear();
+    }
+
+    /**
+     * Scores positions with a neural network from now on
+     *
+     * @param network the network, or null to go back to the hand written evaluation
+     */
+    public void setNetwork(Network network) {
+        this.network = network;
+    }
+
+    public Network getNetwork() {
+        return network;
+    }
+
+    /**
+     * Plays from an opening book while the game is in it
+     *
+     * @param book the book, or null to always search
+     */
+    public void setBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    public OpeningBook getBook() {
+        return book;
+    }
+
+    /**
+     * Settles endings with few enough pieces from endgame tables
+     *
+     * @param tablebase the tables, or null to always search
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    public Tablebase getTablebase() {
+        return tablebase;
+    }
+
+    /**
+     * Chooses which selective search techniques to use from now on
+     *
+     * @param features the techniques to use, all others are switched off
+     */
+    public void setFeatures(Set<SearchFeature> features) {
+        this.features = features.isEmpty() ? EnumSet.noneOf(SearchFeature.class) : EnumSet.copyOf(features);
+    }
+
+    public Set<SearchFeature> getFeatures() {
+        return EnumSet.copyOf(features);
+    }
+
+    /**
+     * Streams progress while searching. The listener is called on the
+     * searching thread after each iteration, and every second during a
+     * long one, with the deepest finished iteration's result and the
+     * statistics so far. Helper threads' counts are only added to the
+     * final result.
+     *
+     * @param info the listener, which should return quickly, or null for none
+     */
+    public void setInfoListener(Consumer<SearchResult> info) {
+        this.info = info;
+    }
+
+    /**
+     * Finds more than the best line from now on, for analysis. The lines
+     * are searched one after another at each depth, each without the moves
+     * of the lines before it, and share the transposition table, so later
+     * lines start with what the earlier ones learned. Helper threads still
+     * search only the best line.
+     *
+     * @param lines how many lines {@link SearchResult#lines()} should hold,
+     *              fewer if the position has fewer legal moves
+     */
+    public void setMultiPv(int lines) {
+        if(lines < 1) {
+            throw new IllegalArgumentException("A search needs at least one line");
+        }
+        this.multiPv = lines;
+    }
+
+    public int getMultiPv() {
+        return multiPv;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * A search that has been started, with the flags that stop its main
+     * thread and its helpers
+     */
+    private record Search(CompletableFuture<SearchResult> result, AtomicBoolean stopFlag,
+                          AtomicBoolean helperStopFlag) {
+
+        void stop() {
+            stopFlag.set(true);
+            helperStopFlag.set(true);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessGame.TeamColor;
+import chess.PieceSquareTables;
+
+/**
+ * Scores a position without searching it
+ * <p>
+ * Material and piece-square sums come from the board, which keeps them up
+ * to date as moves are made and unmade. Pawn structure comes from a pawn
+ * table. The middlegame and endgame scores are blended by the game phase.
+ * <p>
+ * Given a {@link Network}, the evaluator scores with it instead. Moves
+ * must then be made and unmade through the evaluator, so it can keep the
+ * network's accumulators in step. Each search thread owns its own
+ * evaluator.
+ */
+final class Evaluator {
+
+    static final int PAWN_TABLE_ENTRIES = 1 << 14;
+
+    private final PawnTable pawnTable = new PawnTable(PAWN_TABLE_ENTRIES);
+    private final Accumulators accumulators;
+
+    Evaluator() {
+        this(null);
+    }
+
+    /**
+     * @param network the network to score with, or null for the hand written evaluation
+     */
+    Evaluator(Network network) {
+        accumulators = (network == null) ? null
+                : new Accumulators(network, NetworkMath.best(), Searcher.MAX_PLY);
+    }
+
+    void makeMove(ChessGame game, int move) {
+        if(accumulators != null) {
+            accumulators.push(game.getBoard(), move);
+        }
+        game.makeMove(move);
+    }
+
+    void makeNullMove(ChessGame game) {
+        if(accumulators != null) {
+            accumulators.pushNull();
+        }
+        game.makeNullMove();
+    }
+
+    void unmakeMove(ChessGame game) {
+        game.unmakeMove();
+        if(accumulators != null) {
+            accumulators.pop();
+        }
+    }
+
+    /**
+     * @return the score in centipawns, from the side to move
+     */
+    int evaluate(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        if(accumulators != null) {
+            return accumulators.evaluate(board, game.getTeamTurn());
+        }
+
+        int pawns = pawnTable.probe(board);
+        int middlegame = board.getMiddlegameScore() + PawnTable.middlegame(pawns);
+        int endgame = board.getEndgameScore() + PawnTable.endgame(pawns);
+        int phase = board.getPhase();
+        int score = (middlegame * phase + endgame * (PieceSquareTables.MAX_PHASE - phase))
+                / PieceSquareTables.MAX_PHASE;
+        return game.getTeamTurn() == TeamColor.WHITE ? score : -score;
+    }
+}
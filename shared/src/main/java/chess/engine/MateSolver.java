@@ -0,0 +1,415 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.Fen;
+import chess.Move;
+import chess.MoveList;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Proves forced mates with depth-first proof-number search
+ * <p>
+ * The side to move is the attacker. Every position has a proof number, a
+ * lower bound on how many leaves must still be shown to be mates to prove
+ * it, and a disproof number, the same for leaves that escape. A position
+ * the attacker moves in takes the least proof number of its children and
+ * the sum of their disproof numbers; a position the defender moves in
+ * takes the sum of the proof numbers and the least disproof number. The
+ * search always expands the most proving child, and stays below it only
+ * while its numbers are under thresholds set from its best sibling, so
+ * it descends as far as it can before looking back up.
+ * <p>
+ * Numbers are kept in a fixed-size table, two entries to a bucket, where
+ * entries left by shorter mate lengths and then the entry that took less
+ * work to find are replaced first. A mate in n is
+ * searched with the attacker's moves left as part of the key, so a line
+ * never reaches a position it has been in, and mates in 1, 2 ... n are
+ * tried in turn so the first one proven is the shortest.
+ * <pre>
+ * java chess.engine.MateSolver MOVES [--hash MB] [--nodes N] &lt; FENS
+ * </pre>
+ */
+public final class MateSolver {
+
+    public static final int DEFAULT_HASH_MEGABYTES = 16;
+    public static final int MAX_MOVES = 32;
+
+    private static final int INFINITY = Integer.MAX_VALUE / 2;
+    private static final int BYTES_PER_ENTRY = Long.BYTES + 3 * Integer.BYTES + 1;
+    private static final int ENTRIES_PER_BUCKET = 2;
+    //No position has more legal moves than this
+    private static final int MAX_LEGAL_MOVES = 256;
+    private static final long[] MOVES_LEFT_KEYS = new long[MAX_MOVES + 1];
+    private static final byte UNSOLVED = 0;
+    private static final byte PROVEN = 1;
+    private static final byte DISPROVEN = 2;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x6D617465L);
+        for(int i = 0; i < MOVES_LEFT_KEYS.length; i++) {
+            MOVES_LEFT_KEYS[i] = random.nextLong();
+        }
+    }
+
+    private final long[] keys;
+    private final int[] proofs;
+    private final int[] disproofs;
+    private final int[] work;
+    private final byte[] generations;
+    private final int bucketMask;
+
+    private final MoveList[] moves = new MoveList[2 * MAX_MOVES + 2];
+    private final long[][] childKeys = new long[2 * MAX_MOVES + 1][MAX_LEGAL_MOVES];
+    private final byte[][] childResults = new byte[2 * MAX_MOVES + 1][MAX_LEGAL_MOVES];
+    private ChessGame game;
+    private long nodes;
+    private long nodeLimit;
+    private byte generation;
+
+    public MateSolver() {
+        this(DEFAULT_HASH_MEGABYTES);
+    }
+
+    /**
+     * @param hashMegabytes the table size, rounded down to a power of two buckets
+     */
+    public MateSolver(int hashMegabytes) {
+        long buckets = Math.max(1L, hashMegabytes * (1L << 20) / (BYTES_PER_ENTRY * ENTRIES_PER_BUCKET));
+        int size = Integer.highestOneBit((int) Math.min(buckets, 1 << 26));
+        keys = new long[size * ENTRIES_PER_BUCKET];
+        proofs = new int[size * ENTRIES_PER_BUCKET];
+        disproofs = new int[size * ENTRIES_PER_BUCKET];
+        work = new int[size * ENTRIES_PER_BUCKET];
+        generations = new byte[size * ENTRIES_PER_BUCKET];
+        bucketMask = size - 1;
+        for(int i = 0; i < moves.length; i++) {
+            moves[i] = new MoveList();
+        }
+    }
+
+    /**
+     * Looks for a mate by the side to move in at most a number of its
+     * moves. The game itself is not changed.
+     *
+     * @param game      the position, with the attacker to move
+     * @param maxMoves  the most attacker moves the mate may take, up to {@link #MAX_MOVES}
+     * @param nodeLimit the most positions to expand before giving up, or 0 for no limit
+     * @return the shortest mate found, that there is none within maxMoves,
+     * or that the node limit ran out first
+     */
+    public Result solve(ChessGame game, int maxMoves, long nodeLimit) {
+        if(maxMoves < 1 || maxMoves > MAX_MOVES) {
+            throw new IllegalArgumentException("Mates can be searched from 1 to " + MAX_MOVES + " moves deep");
+        }
+        this.game = new ChessGame(game);
+        this.nodes = 0;
+        this.nodeLimit = nodeLimit <= 0 ? Long.MAX_VALUE : nodeLimit;
+        long start = System.nanoTime();
+
+        for(int movesLeft = 1; movesLeft <= maxMoves; movesLeft++) {
+            generation++;
+            long key = this.game.zobristKey() ^ MOVES_LEFT_KEYS[movesLeft];
+            search(key, movesLeft, true, 0, INFINITY - 1, INFINITY - 1);
+            int entry = find(key);
+            if(entry < 0 || (proofs[entry] != 0 && disproofs[entry] != 0)) {
+                return new Result(Status.UNKNOWN, 0, new int[0], nodes, System.nanoTime() - start);
+            }
+            if(proofs[entry] == 0) {
+                return new Result(Status.MATE, movesLeft, principalVariation(movesLeft), nodes,
+                        System.nanoTime() - start);
+            }
+        }
+        return new Result(Status.NO_MATE, 0, new int[0], nodes, System.nanoTime() - start);
+    }
+
+    /**
+     * Forgets every proof, such as when memory of earlier puzzles is no
+     * longer useful
+     */
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(work, 0);
+    }
+
+    /**
+     * Expands a position until its proof number reaches proofThreshold or
+     * its disproof number reaches disproofThreshold, then stores its numbers
+     *
+     * @param movesLeft attacker moves left, counting the next one if the attacker is to move
+     */
+    private void search(long key, int movesLeft, boolean attacker, int ply, int proofThreshold,
+                        int disproofThreshold) {
+        long startNodes = nodes++;
+        MoveList children = moves[ply];
+        game.legalMoves(children);
+        int count = children.size();
+
+        //Leaves: checkmate proves, any other end of the game or of the attacker's moves disproves
+        if(count == 0 || movesLeft == 0) {
+            boolean mate = count == 0 && !attacker && game.isInCheck(game.getTeamTurn());
+            store(key, mate ? 0 : INFINITY, mate ? INFINITY : 0, 1);
+            return;
+        }
+
+        long[] keysOfChildren = childKeys[ply];
+        byte[] solvedChildren = childResults[ply];
+        int childMovesLeft = attacker ? movesLeft - 1 : movesLeft;
+        for(int i = 0; i < count; i++) {
+            game.makeMove(children.get(i));
+            keysOfChildren[i] = game.zobristKey() ^ MOVES_LEFT_KEYS[childMovesLeft];
+            //The attacker's last move is settled here, so the table never fills with these leaves
+            solvedChildren[i] = childMovesLeft > 0 ? UNSOLVED : (isCheckmate(moves[ply + 1]) ? PROVEN : DISPROVEN);
+            game.unmakeMove();
+        }
+
+        while(true) {
+            //The attacker's numbers: least proof and summed disproof; the defender's the other way round
+            int best = -1;
+            int bestNumber = INFINITY;
+            int secondNumber = INFINITY;
+            int bestOther = 0;
+            long sum = 0;
+            for(int i = 0; i < count; i++) {
+                int proof;
+                int disproof;
+                if(solvedChildren[i] == UNSOLVED) {
+                    int entry = find(keysOfChildren[i]);
+                    proof = entry < 0 ? 1 : proofs[entry];
+                    disproof = entry < 0 ? 1 : disproofs[entry];
+                }
+                else {
+                    proof = solvedChildren[i] == PROVEN ? 0 : INFINITY;
+                    disproof = solvedChildren[i] == PROVEN ? INFINITY : 0;
+                }
+                int number = attacker ? proof : disproof;
+                sum += attacker ? disproof : proof;
+                if(number < bestNumber) {
+                    secondNumber = bestNumber;
+                    bestNumber = number;
+                    bestOther = attacker ? disproof : proof;
+                    best = i;
+                }
+                else if(number < secondNumber) {
+                    secondNumber = number;
+                }
+            }
+            int summed = (int) Math.min(sum, INFINITY);
+            int proof = attacker ? bestNumber : summed;
+            int disproof = attacker ? summed : bestNumber;
+            if(proof >= proofThreshold || disproof >= disproofThreshold || nodes >= nodeLimit) {
+                store(key, proof, disproof, (int) Math.min(nodes - startNodes, Integer.MAX_VALUE));
+                return;
+            }
+
+            //The best child may run until its own number passes the second best's, or the rest of the sum runs out
+            int childThreshold = Math.min(attacker ? proofThreshold : disproofThreshold,
+                    secondNumber == INFINITY ? INFINITY : secondNumber + secondNumber / 4 + 1);
+            int otherThreshold = (attacker ? disproofThreshold : proofThreshold) - summed + bestOther;
+            game.makeMove(children.get(best));
+            if(attacker) {
+                search(keysOfChildren[best], childMovesLeft, false, ply + 1, childThreshold, otherThreshold);
+            }
+            else {
+                search(keysOfChildren[best], childMovesLeft, true, ply + 1, otherThreshold, childThreshold);
+            }
+            game.unmakeMove();
+        }
+    }
+
+    private boolean isCheckmate(MoveList scratch) {
+        if(!game.isInCheck(game.getTeamTurn())) {
+            return false;
+        }
+        game.legalMoves(scratch);
+        return scratch.size() == 0;
+    }
+
+    /**
+     * Follows proven moves from the root: for the attacker any move proven
+     * within the moves left, for the defender the move with the fewest
+     * shorter mates proven against it. The line stops early if the table
+     * has lost an entry on it.
+     */
+    private int[] principalVariation(int mateMoves) {
+        int[] pv = new int[2 * mateMoves - 1];
+        int length = 0;
+        int movesLeft = mateMoves;
+        boolean attacker = true;
+        MoveList children = new MoveList();
+        MoveList scratch = new MoveList();
+        while(length < pv.length) {
+            game.legalMoves(children);
+            int chosen = Move.NONE;
+            int longest = -1;
+            for(int i = 0; i < children.size() && !(attacker && chosen != Move.NONE); i++) {
+                int move = children.get(i);
+                game.makeMove(move);
+                if(attacker) {
+                    int entry = find(game.zobristKey() ^ MOVES_LEFT_KEYS[movesLeft - 1]);
+                    if(movesLeft == 1 ? isCheckmate(scratch) : entry >= 0 && proofs[entry] == 0) {
+                        chosen = move;
+                    }
+                }
+                else {
+                    int holds = 0;
+                    while(holds < movesLeft) {
+                        int entry = find(game.zobristKey() ^ MOVES_LEFT_KEYS[holds]);
+                        if(entry >= 0 && proofs[entry] == 0) {
+                            break;
+                        }
+                        holds++;
+                    }
+                    if(holds > longest) {
+                        longest = holds;
+                        chosen = move;
+                    }
+                }
+                game.unmakeMove();
+            }
+            if(chosen == Move.NONE) {
+                break;
+            }
+            game.makeMove(chosen);
+            pv[length++] = chosen;
+            if(attacker) {
+                movesLeft--;
+            }
+            attacker = !attacker;
+        }
+        for(int i = 0; i < length; i++) {
+            game.unmakeMove();
+        }
+        return Arrays.copyOf(pv, length);
+    }
+
+    /**
+     * @return the slot holding a key, or -1 if it is not stored
+     */
+    private int find(long key) {
+        int index = bucketIndex(key);
+        for(int slot = index; slot < index + ENTRIES_PER_BUCKET; slot++) {
+            if(keys[slot] == key && work[slot] != 0) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Stores a position's numbers over its own entry, or else over an
+     * entry left by an earlier mate length, or else over the entry in its
+     * bucket that took the least work, which is the cheapest to find again
+     */
+    private void store(long key, int proof, int disproof, int nodesSpent) {
+        int index = bucketIndex(key);
+        int slot = index;
+        for(int i = index; i < index + ENTRIES_PER_BUCKET; i++) {
+            if(keys[i] == key || work[i] == 0) {
+                slot = i;
+                break;
+            }
+            if(generations[i] != generation) {
+                if(generations[slot] == generation || work[i] < work[slot]) {
+                    slot = i;
+                }
+            }
+            else if(generations[slot] == generation && work[i] < work[slot]) {
+                slot = i;
+            }
+        }
+        keys[slot] = key;
+        proofs[slot] = proof;
+        disproofs[slot] = disproof;
+        work[slot] = Math.max(1, nodesSpent);
+        generations[slot] = generation;
+    }
+
+    private int bucketIndex(long key) {
+        return (int) (key & bucketMask) * ENTRIES_PER_BUCKET;
+    }
+
+    /**
+     * Solves each position read from standard input, one FEN per line
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length < 1) {
+            System.err.println("Usage: MateSolver MOVES [--hash MB] [--nodes N] < FENS");
+            System.exit(2);
+        }
+        int maxMoves = Integer.parseInt(args[0]);
+        int hashMegabytes = DEFAULT_HASH_MEGABYTES;
+        long nodeLimit = 0;
+        for(int i = 1; i < args.length; i++) {
+            switch(args[i]) {
+                case "--hash" -> hashMegabytes = Integer.parseInt(args[++i]);
+                case "--nodes" -> nodeLimit = Long.parseLong(args[++i]);
+                default -> {
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+                }
+            }
+        }
+
+        MateSolver solver = new MateSolver(hashMegabytes);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String line;
+        while((line = reader.readLine()) != null) {
+            if(line.isBlank()) {
+                continue;
+            }
+            solver.clear();
+            Result result = solver.solve(Fen.parse(line.trim()), maxMoves, nodeLimit);
+            System.out.printf("%-8s %2d  %,12d nodes  %8.3f s  %-30s %s%n", result.status(), result.moves(),
+                    result.nodes(), result.nanos() / 1e9, result.pvString(), line.trim());
+        }
+    }
+
+    public enum Status {
+        /**
+         * The side to move mates by force
+         */
+        MATE,
+        /**
+         * The defender escapes every line within the moves searched
+         */
+        NO_MATE,
+        /**
+         * The node limit ran out first
+         */
+        UNKNOWN
+    }
+
+    /**
+     * @param status whether a mate was proven
+     * @param moves  the attacker's moves to mate with best defence, or 0 without a mate
+     * @param pv     the mating line, attacker's move first
+     * @param nodes  positions expanded
+     * @param nanos  how long the solve took
+     */
+    public record Result(Status status, int moves, int[] pv, long nodes, long nanos) {
+
+        public int bestMove() {
+            return pv.length == 0 ? Move.NONE : pv[0];
+        }
+
+        /**
+         * @return the mating line in coordinate notation, such as "d1d8"
+         */
+        public String pvString() {
+            StringBuilder builder = new StringBuilder();
+            for(int move : pv) {
+                if(!builder.isEmpty()) {
+                    builder.append(' ');
+                }
+                builder.append(Move.toString(move));
+            }
+            return builder.toString();
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package chess.engine;
+
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece.PieceType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * One endgame's pieces, and how its positions are numbered in a tablebase
+ * <p>
+ * An endgame is named like "KRvKP": the stronger side's pieces, then the
+ * weaker side's, each starting with the king and then queens, rooks,
+ * bishops, knights and pawns. Tables are built with the stronger side as
+ * white. A position where black is stronger is looked up with the board
+ * turned around and the colors swapped.
+ * <p>
+ * A position's index is built from the squares of the stronger king, the
+ * weaker king and then the other pieces in name order, and finally the
+ * side to move. The board is first mirrored so the stronger king stands
+ * on the a to d files. Without pawns it is also flipped to the lower
+ * half and across the a1-h8 diagonal, leaving ten king squares instead
+ * of 64.
+ */
+final class Material {
+
+    static final int MAX_PIECES = 4;
+
+    //The order pieces appear in names, with their values for deciding the stronger side
+    private static final PieceType[] NAME_ORDER = {
+            PieceType.QUEEN, PieceType.ROOK, PieceType.BISHOP, PieceType.KNIGHT, PieceType.PAWN
+    };
+    private static final String NAME_CHARS = "QRBNP";
+    private static final int[] NAME_VALUES = {9, 5, 3, 3, 1};
+    private static final PieceType[] PROMOTIONS = {PieceType.QUEEN, PieceType.ROOK, PieceType.BISHOP, PieceType.KNIGHT};
+
+    //Numbers every count of up to two of each non-king piece, for looking tables up without building names
+    static final int SIGNATURES = 59049;
+
+    //King squares after reduction, by square, and the reverse
+    private static final int[] TRIANGLE_INDEX = new int[64];
+    private static final int[] TRIANGLE_SQUARES = new int[10];
+    private static final int[] HALF_INDEX = new int[64];
+    private static final int[] HALF_SQUARES = new int[32];
+
+    static {
+        Arrays.fill(TRIANGLE_INDEX, -1);
+        Arrays.fill(HALF_INDEX, -1);
+        int triangle = 0;
+        int half = 0;
+        for(int square = 0; square < 64; square++) {
+            int file = square & 7;
+            int rank = square >>> 3;
+            if(file <= rank && rank < 4) {
+                TRIANGLE_SQUARES[triangle] = square;
+                TRIANGLE_INDEX[square] = triangle++;
+            }
+            if(file < 4) {
+                HALF_SQUARES[half] = square;
+                HALF_INDEX[square] = half++;
+            }
+        }
+    }
+
+    final String name;
+    final PieceType[] strong;
+    final PieceType[] weak;
+    final boolean pawns;
+    final int pieceCount;
+    final int size;
+
+    private Material(String name, PieceType[] strong, PieceType[] weak) {
+        this.name = name;
+        this.strong = strong;
+        this.weak = weak;
+        this.pieceCount = 2 + strong.length + weak.length;
+        boolean anyPawns = false;
+        for(PieceType type : strong) {
+            anyPawns |= type == PieceType.PAWN;
+        }
+        for(PieceType type : weak) {
+            anyPawns |= type == PieceType.PAWN;
+        }
+        this.pawns = anyPawns;
+        int positions = pawns ? HALF_SQUARES.length : TRIANGLE_SQUARES.length;
+        for(int i = 1; i < pieceCount; i++) {
+            positions *= 64;
+        }
+        this.size = positions * 2;
+    }
+
+    /**
+     * @param name an endgame name such as "KQvKR", with the stronger side first
+     * @throws IllegalArgumentException if the name is not an endgame of at
+     *                                  most {@link #MAX_PIECES} pieces in its
+     *                                  usual order
+     */
+    static Material parse(String name) {
+        String[] sides = name.split("v");
+        if(sides.length != 2 || !sides[0].startsWith("K") || !sides[1].startsWith("K")) {
+            throw new IllegalArgumentException("Bad endgame name: " + name);
+        }
+        PieceType[] strong = parseSide(sides[0].substring(1), name);
+        PieceType[] weak = parseSide(sides[1].substring(1), name);
+        if(2 + strong.length + weak.length > MAX_PIECES || !name(strong, weak).equals(name)) {
+            throw new IllegalArgumentException("Bad endgame name: " + name);
+        }
+        return new Material(name, strong, weak);
+    }
+
+    private static PieceType[] parseSide(String pieces, String name) {
+        PieceType[] types = new PieceType[pieces.length()];
+        for(int i = 0; i < types.length; i++) {
+            int kind = NAME_CHARS.indexOf(pieces.charAt(i));
+            if(kind < 0) {
+                throw new IllegalArgumentException("Bad endgame name: " + name);
+            }
+            types[i] = NAME_ORDER[kind];
+        }
+        return types;
+    }
+
+    /**
+     * @return the name of the endgame with these pieces, in either order
+     */
+    static String name(PieceType[] first, PieceType[] second) {
+        String firstSide = sideName(first);
+        String secondSide = sideName(second);
+        return isStronger(secondSide, firstSide) ? secondSide + "v" + firstSide : firstSide + "v" + secondSide;
+    }
+
+    private static String sideName(PieceType[] types) {
+        StringBuilder builder = new StringBuilder("K");
+        for(int kind = 0; kind < NAME_ORDER.length; kind++) {
+            for(PieceType type : types) {
+                if(type == NAME_ORDER[kind]) {
+                    builder.append(NAME_CHARS.charAt(kind));
+                }
+            }
+        }
+        return builder.toString();
+    }
+
+    private static boolean isStronger(String side, String other) {
+        int difference = sideValue(side) - sideValue(other);
+        return difference != 0 ? difference > 0 : side.compareTo(other) > 0;
+    }
+
+    private static int sideValue(String side) {
+        int value = 0;
+        for(int i = 1; i < side.length(); i++) {
+            value += NAME_VALUES[NAME_CHARS.indexOf(side.charAt(i))];
+        }
+        return value;
+    }
+
+    /**
+     * @return every endgame of three to maxPieces pieces
+     */
+    static List<String> all(int maxPieces) {
+        Set<String> names = new LinkedHashSet<>();
+        for(int extra = 1; extra <= maxPieces - 2; extra++) {
+            addAll(names, new PieceType[extra], 0, 0);
+        }
+        return new ArrayList<>(names);
+    }
+
+    private static void addAll(Set<String> names, PieceType[] pieces, int next, int firstKind) {
+        if(next == pieces.length) {
+            for(int split = 0; split <= pieces.length; split++) {
+                names.add(name(Arrays.copyOfRange(pieces, 0, split), Arrays.copyOfRange(pieces, split, pieces.length)));
+            }
+            return;
+        }
+        for(int kind = firstKind; kind < NAME_ORDER.length; kind++) {
+            pieces[next] = NAME_ORDER[kind];
+            addAll(names, pieces, next + 1, kind);
+        }
+    }
+
+    /**
+     * @return the endgames a capture or promotion can turn this one into,
+     * other than the bare kings
+     */
+    List<String> successors() {
+        Set<String> names = new LinkedHashSet<>();
+        for(int side = 0; side < 2; side++) {
+            PieceType[] own = (side == 0) ? strong : weak;
+            PieceType[] other = (side == 0) ? weak : strong;
+            for(int i = 0; i < own.length; i++) {
+                PieceType[] captured = new PieceType[own.length - 1];
+                for(int j = 0, k = 0; j < own.length; j++) {
+                    if(j != i) {
+                        captured[k++] = own[j];
+                    }
+                }
+                if(captured.length + other.length > 0) {
+                    names.add(name(captured, other));
+                }
+                if(own[i] == PieceType.PAWN) {
+                    for(PieceType promotion : PROMOTIONS) {
+                        PieceType[] promoted = own.clone();
+                        promoted[i] = promotion;
+                        names.add(name(promoted, other));
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * @return a number for the counts of each non-king piece of each color,
+     * or -1 if there are more than two of one
+     */
+    static int signature(ChessBoard board) {
+        int signature = 0;
+        for(TeamColor color : TeamColor.values()) {
+            for(PieceType type : NAME_ORDER) {
+                int count = Long.bitCount(board.getBitboard(color, type));
+                if(count > 2) {
+                    return -1;
+                }
+                signature = signature * 3 + count;
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * @return the signature of this endgame with the stronger side as the
+     * given color
+     */
+    int signature(TeamColor strongColor) {
+        int[] counts = new int[2 * NAME_ORDER.length];
+        int strongOffset = (strongColor == TeamColor.WHITE) ? 0 : NAME_ORDER.length;
+        int weakOffset = NAME_ORDER.length - strongOffset;
+        for(PieceType type : strong) {
+            counts[strongOffset + kind(type)]++;
+        }
+        for(PieceType type : weak) {
+            counts[weakOffset + kind(type)]++;
+        }
+        int signature = 0;
+        for(int count : counts) {
+            signature = signature * 3 + count;
+        }
+        return signature;
+    }
+
+    private static int kind(PieceType type) {
+        for(int kind = 0; kind < NAME_ORDER.length; kind++) {
+            if(NAME_ORDER[kind] == type) {
+                return kind;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param board       a position with exactly this endgame's pieces
+     * @param strongColor which color the stronger side is
+     * @return the position's index in the table
+     */
+    int index(ChessBoard board, TeamColor turn, TeamColor strongColor) {
+        TeamColor weakColor = strongColor.opponent();
+        //Turning the board around puts the stronger side where white is
+        int turnAround = (strongColor == TeamColor.WHITE) ? 0 : 56;
+        int strongKing = Bitboards.firstSquare(board.getBitboard(strongColor, PieceType.KING)) ^ turnAround;
+
+        int flip = 0;
+        boolean diagonal = false;
+        if((strongKing & 7) >= 4) {
+            flip ^= 7;
+        }
+        if(!pawns) {
+            if((strongKing >>> 3) >= 4) {
+                flip ^= 56;
+            }
+            int flipped = strongKing ^ flip;
+            diagonal = (flipped & 7) > (flipped >>> 3);
+        }
+
+        int kingSquare = transform(strongKing, flip, diagonal);
+        int index = pawns ? HALF_INDEX[kingSquare] : TRIANGLE_INDEX[kingSquare];
+        int weakKing = Bitboards.firstSquare(board.getBitboard(weakColor, PieceType.KING)) ^ turnAround;
+        index = index * 64 + transform(weakKing, flip, diagonal);
+        index = addPieces(index, board, strongColor, turnAround, flip, diagonal);
+        index = addPieces(index, board, weakColor, turnAround, flip, diagonal);
+        return index * 2 + (turn == strongColor ? 0 : 1);
+    }
+
+    private static int addPieces(int index, ChessBoard board, TeamColor color, int turnAround, int flip,
+                                 boolean diagonal) {
+        for(PieceType type : NAME_ORDER) {
+            long pieces = board.getBitboard(color, type);
+            while(pieces != 0) {
+                index = index * 64 + transform(Bitboards.firstSquare(pieces) ^ turnAround, flip, diagonal);
+                pieces &= pieces - 1;
+            }
+        }
+        return index;
+    }
+
+    private static int transform(int square, int flip, boolean diagonal) {
+        square ^= flip;
+        return diagonal ? ((square & 7) << 3) | (square >>> 3) : square;
+    }
+
+    /**
+     * Fills in the squares of the position at an index, with the stronger
+     * side as white
+     *
+     * @param squares receives the squares in index order: kings, then the
+     *                stronger side's pieces, then the weaker side's
+     * @return whether the stronger side is to move
+     */
+    boolean squares(int index, int[] squares) {
+        boolean strongToMove = (index & 1) == 0;
+        index >>>= 1;
+        for(int i = pieceCount - 1; i >= 1; i--) {
+            squares[i] = index & 63;
+            index >>>= 6;
+        }
+        squares[0] = pawns ? HALF_SQUARES[index] : TRIANGLE_SQUARES[index];
+        return strongToMove;
+    }
+
+    /**
+     * @return the types of the pieces in index order
+     */
+    PieceType[] types() {
+        PieceType[] types = new PieceType[pieceCount];
+        types[0] = PieceType.KING;
+        types[1] = PieceType.KING;
+        System.arraycopy(strong, 0, types, 2, strong.length);
+        System.arraycopy(weak, 0, types, 2 + strong.length, weak.length);
+        return types;
+    }
+
+    /**
+     * @return the colors of the pieces in index order, with the stronger side white
+     */
+    TeamColor[] colors() {
+        TeamColor[] colors = new TeamColor[pieceCount];
+        colors[0] = TeamColor.WHITE;
+        colors[1] = TeamColor.BLACK;
+        for(int i = 2; i < pieceCount; i++) {
+            colors[i] = (i < 2 + strong.length) ? TeamColor.WHITE : TeamColor.BLACK;
+        }
+        return colors;
+    }
+}
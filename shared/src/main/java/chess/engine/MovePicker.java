@@ -0,0 +1,214 @@
+package chess.engine;
+
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece.PieceType;
+import chess.Move;
+import chess.MoveList;
+import chess.StaticExchange;
+
+/**
+ * Hands out a node's moves best first, so alpha-beta finds cutoffs early
+ * <p>
+ * Moves are produced in stages: the transposition table move, then
+ * captures that do not lose material by static exchange, ordered by most
+ * valuable victim and least valuable attacker, then the killer moves of
+ * the ply, then quiet moves by history score, then the losing captures.
+ * Each stage is generated only when the one before it runs out, so a node
+ * that cuts off on an early move never generates its quiet moves. Within
+ * a stage moves are picked by selection. One picker is kept per ply and
+ * reused.
+ */
+final class MovePicker {
+
+    private static final int TT_MOVE = 0;
+    private static final int GENERATE_CAPTURES = 1;
+    private static final int GOOD_CAPTURES = 2;
+    private static final int FIRST_KILLER = 3;
+    private static final int SECOND_KILLER = 4;
+    private static final int GENERATE_QUIETS = 5;
+    private static final int QUIETS = 6;
+    private static final int BAD_CAPTURES = 7;
+    private static final int DONE = 8;
+
+    private final MoveList moves = new MoveList();
+    private final MoveList badCaptures = new MoveList();
+    private final MoveList scratch = new MoveList(32);
+    private final int[] scores = new int[256];
+
+    private ChessGame game;
+    private int ttMove;
+    private int[] killers;
+    private int[] colorHistory;
+    private boolean capturesOnly;
+    private int stage;
+    private int next;
+
+    /**
+     * Starts picking every legal move of the side to move
+     */
+    void init(ChessGame game, int ttMove, int[] killers, int[][] history) {
+        this.game = game;
+        this.ttMove = ttMove;
+        this.killers = killers;
+        this.colorHistory = history[game.getTeamTurn().ordinal()];
+        this.capturesOnly = false;
+        stage = TT_MOVE;
+        badCaptures.clear();
+    }
+
+    /**
+     * Starts picking only captures and promotions, as quiescence search
+     * wants
+     */
+    void initCaptures(ChessGame game, int ttMove) {
+        this.game = game;
+        this.ttMove = ttMove;
+        this.capturesOnly = true;
+        stage = TT_MOVE;
+        badCaptures.clear();
+    }
+
+    /**
+     * @return the next move to search, or {@link Move#NONE} once every move
+     * has been handed out
+     */
+    int next() {
+        while(true) {
+            switch(stage) {
+                case TT_MOVE -> {
+                    stage = GENERATE_CAPTURES;
+                    if(ttMove != Move.NONE && (!capturesOnly || isNoisy(game.getBoard(), ttMove))
+                            && game.isLegal(ttMove, scratch)) {
+                        return ttMove;
+                    }
+                }
+                case GENERATE_CAPTURES -> {
+                    game.noisyMoves(moves);
+                    ChessBoard board = game.getBoard();
+                    for(int i = 0; i < moves.size(); i++) {
+                        scores[i] = mvvLva(board, moves.get(i));
+                    }
+                    next = 0;
+                    stage = GOOD_CAPTURES;
+                }
+                case GOOD_CAPTURES -> {
+                    while(next < moves.size()) {
+                        int move = pickBest();
+                        if(move == ttMove) {
+                            continue;
+                        }
+                        if(!capturesOnly && !isGoodCapture(game.getBoard(), move)) {
+                            badCaptures.add(move);
+                            continue;
+                        }
+                        return move;
+                    }
+                    stage = capturesOnly ? DONE : FIRST_KILLER;
+                }
+                case FIRST_KILLER, SECOND_KILLER -> {
+                    int killer = killers[stage - FIRST_KILLER];
+                    stage++;
+                    if(killer != Move.NONE && killer != ttMove && !isNoisy(game.getBoard(), killer)
+                            && game.isLegal(killer, scratch)) {
+                        return killer;
+                    }
+                }
+                case GENERATE_QUIETS -> {
+                    game.quietMoves(moves);
+                    for(int i = 0; i < moves.size(); i++) {
+                        int move = moves.get(i);
+                        scores[i] = colorHistory[Move.from(move) << 6 | Move.to(move)];
+                    }
+                    next = 0;
+                    stage = QUIETS;
+                }
+                case QUIETS -> {
+                    while(next < moves.size()) {
+                        int move = pickBest();
+                        if(move != ttMove && move != killers[0] && move != killers[1]) {
+                            return move;
+                        }
+                    }
+                    next = 0;
+                    stage = BAD_CAPTURES;
+                }
+                case BAD_CAPTURES -> {
+                    if(next < badCaptures.size()) {
+                        return badCaptures.get(next++);
+                    }
+                    stage = DONE;
+                }
+                default -> {
+                    return Move.NONE;
+                }
+            }
+        }
+    }
+
+    /**
+     * Swaps the best scored remaining move into place and hands it out
+     */
+    private int pickBest() {
+        int best = next;
+        for(int i = next + 1; i < moves.size(); i++) {
+            if(scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        int move = moves.get(best);
+        moves.set(best, moves.get(next));
+        moves.set(next, move);
+        int score = scores[best];
+        scores[best] = scores[next];
+        scores[next] = score;
+        next++;
+        return move;
+    }
+
+    static boolean isCapture(ChessBoard board, int move) {
+        return Move.flag(move) == Move.EN_PASSANT || board.pieceAt(Move.to(move)) >= 0;
+    }
+
+    static boolean isNoisy(ChessBoard board, int move) {
+        return Move.isPromotion(move) || isCapture(board, move);
+    }
+
+    /**
+     * @return whether a capture does not lose material once every
+     * recapture on its square is played out
+     */
+    private static boolean isGoodCapture(ChessBoard board, int move) {
+        return StaticExchange.seeAtLeast(board, move, 0);
+    }
+
+    /**
+     * @return the value of the piece a move captures, or 0 if it captures
+     * nothing
+     */
+    static int capturedValue(ChessBoard board, int move) {
+        if(Move.flag(move) == Move.EN_PASSANT) {
+            return StaticExchange.value(PieceType.PAWN);
+        }
+        int victim = board.pieceAt(Move.to(move));
+        return victim >= 0 ? pieceValue(victim) : 0;
+    }
+
+    private static int pieceValue(int pieceIndex) {
+        return StaticExchange.value(Bitboards.typeOf(pieceIndex));
+    }
+
+    /**
+     * @return a score that ranks captures of bigger pieces first and, among
+     * those, captures made with smaller pieces first. Promotions add the
+     * value of the new piece.
+     */
+    static int mvvLva(ChessBoard board, int move) {
+        int victimValue = capturedValue(board, move);
+        if(Move.isPromotion(move)) {
+            victimValue += StaticExchange.value(Move.promotion(move));
+        }
+        return victimValue * 16 - pieceValue(board.pieceAt(Move.from(move))) / 16;
+    }
+}
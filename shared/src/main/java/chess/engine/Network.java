@@ -0,0 +1,163 @@
+package chess.engine;
+
+import chess.Bitboards;
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece.PieceType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * The weights of an efficiently updatable neural network evaluation
+ * <p>
+ * The input layer is HalfKP: for each side, one input per placement of a
+ * non-king piece, per square of that side's king. Each side's inputs feed
+ * the same hidden layer, called its accumulator, and since a move turns on
+ * and off only a few inputs, the accumulators are updated by adding and
+ * subtracting weight rows rather than recomputed. A king move changes
+ * every input of its own side, which then recomputes its accumulator.
+ * Both accumulators, the side to move first, are clipped to
+ * [0, {@link #ACTIVATION_LIMIT}] and feed one output.
+ * <p>
+ * All weights are 16 bit integers. A network file is little endian: the
+ * magic number, the hidden size, the feature weights input by input, the
+ * hidden biases, the output weights and the 32 bit output bias. Files are
+ * memory mapped and read with bulk copies into the arrays the evaluation
+ * works on.
+ */
+public final class Network {
+
+    //Non-king pieces of both colors, in PieceType order, own pieces first
+    private static final int PIECE_KINDS = 10;
+    public static final int INPUTS = 64 * PIECE_KINDS * 64;
+
+    //The hidden layer is clipped to [0, ACTIVATION_LIMIT], and output weights are scaled by OUTPUT_WEIGHT_SCALE
+    static final int ACTIVATION_LIMIT = 255;
+    static final int OUTPUT_WEIGHT_SCALE = 64;
+    //Centipawns per unit of network output
+    static final int OUTPUT_SCALE = 400;
+
+    //"NNUE" read as a little endian int
+    private static final int MAGIC = 0x45554E4E;
+    private static final int HEADER_BYTES = 8;
+
+    final int hiddenSize;
+    final short[] featureWeights;
+    final short[] hiddenBiases;
+    final short[] outputWeights;
+    final int outputBias;
+
+    private Network(int hiddenSize, short[] featureWeights, short[] hiddenBiases, short[] outputWeights,
+                    int outputBias) {
+        this.hiddenSize = hiddenSize;
+        this.featureWeights = featureWeights;
+        this.hiddenBiases = hiddenBiases;
+        this.outputWeights = outputWeights;
+        this.outputBias = outputBias;
+    }
+
+    /**
+     * Reads a network file
+     *
+     * @throws IOException if the file cannot be read or is not a network
+     */
+    public static Network load(Path path) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if(buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+                throw new IOException("Not a network file: " + path);
+            }
+            int hiddenSize = buffer.getInt();
+            if(hiddenSize <= 0 || buffer.remaining() != bodyBytes(hiddenSize)) {
+                throw new IOException("Network file has the wrong size: " + path);
+            }
+
+            short[] featureWeights = new short[INPUTS * hiddenSize];
+            short[] hiddenBiases = new short[hiddenSize];
+            short[] outputWeights = new short[2 * hiddenSize];
+            buffer.asShortBuffer().get(featureWeights).get(hiddenBiases).get(outputWeights);
+            buffer.position(buffer.position() + 2 * (featureWeights.length + hiddenBiases.length + outputWeights.length));
+            return new Network(hiddenSize, featureWeights, hiddenBiases, outputWeights, buffer.getInt());
+        }
+    }
+
+    /**
+     * Writes this network in the format {@link #load(Path)} reads
+     */
+    public void save(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + bodyBytes(hiddenSize)).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(hiddenSize);
+        for(short[] weights : new short[][] {featureWeights, hiddenBiases, outputWeights}) {
+            for(short weight : weights) {
+                buffer.putShort(weight);
+            }
+        }
+        buffer.putInt(outputBias).flip();
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while(buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Makes an untrained network with small random weights, for testing
+     * and benchmarking the evaluation without a trained file
+     */
+    public static Network random(int hiddenSize, long seed) {
+        Random random = new Random(seed);
+        short[] featureWeights = new short[INPUTS * hiddenSize];
+        short[] hiddenBiases = new short[hiddenSize];
+        short[] outputWeights = new short[2 * hiddenSize];
+        for(int i = 0; i < featureWeights.length; i++) {
+            featureWeights[i] = (short) (random.nextInt(65) - 32);
+        }
+        for(int i = 0; i < hiddenSize; i++) {
+            hiddenBiases[i] = (short) random.nextInt(64);
+        }
+        for(int i = 0; i < outputWeights.length; i++) {
+            outputWeights[i] = (short) (random.nextInt(129) - 64);
+        }
+        return new Network(hiddenSize, featureWeights, hiddenBiases, outputWeights, 0);
+    }
+
+    public int getHiddenSize() {
+        return hiddenSize;
+    }
+
+    private static int bodyBytes(int hiddenSize) {
+        return 2 * (INPUTS * hiddenSize + hiddenSize + 2 * hiddenSize) + 4;
+    }
+
+    /**
+     * @param perspective the side whose accumulator the input feeds
+     * @param kingSquare  that side's king square
+     * @param pieceIndex  the piece placed
+     * @param square      where it is placed
+     * @return the input index, or -1 for kings, which are not inputs.
+     * Black sees the board flipped, so both sides share the weights.
+     */
+    static int feature(TeamColor perspective, int kingSquare, int pieceIndex, int square) {
+        PieceType type = Bitboards.typeOf(pieceIndex);
+        if(type == PieceType.KING) {
+            return -1;
+        }
+        int kind = type.ordinal() - 1;
+        if(Bitboards.colorOf(pieceIndex) != perspective) {
+            kind += PIECE_KINDS / 2;
+        }
+        if(perspective == TeamColor.BLACK) {
+            kingSquare ^= 56;
+            square ^= 56;
+        }
+        return (kingSquare * PIECE_KINDS + kind) * 64 + square;
+    }
+}
@@ -0,0 +1,48 @@
+package chess.engine;
+
+/**
+ * The arithmetic of network evaluation, done one lane at a time or with
+ * SIMD vectors
+ * <p>
+ * The vector version needs the incubating jdk.incubator.vector module, so
+ * it is only compiled by the {@code vector} build profile, and only used
+ * when the JVM is started with {@code --add-modules jdk.incubator.vector}.
+ * Otherwise the scalar version is used, and nothing from the module is
+ * ever loaded.
+ */
+interface NetworkMath {
+
+    /**
+     * Adds one row of weights to an accumulator
+     */
+    void add(short[] accumulator, short[] weights, int offset);
+
+    /**
+     * Subtracts one row of weights from an accumulator
+     */
+    void subtract(short[] accumulator, short[] weights, int offset);
+
+    /**
+     * @return the sum over the accumulator of each value, clipped to
+     * [0, {@link Network#ACTIVATION_LIMIT}], times its weight
+     */
+    int activate(short[] accumulator, short[] weights, int offset);
+
+    /**
+     * @return the vector version when it was built and its module is
+     * present, otherwise the scalar version
+     */
+    static NetworkMath best() {
+        if(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                //Looked up by name, since the default build leaves the class out
+                return (NetworkMath) Class.forName("chess.engine.VectorNetworkMath").getDeclaredConstructor()
+                        .newInstance();
+            }
+            catch(ReflectiveOperationException ex) {
+                return new ScalarNetworkMath();
+            }
+        }
+        return new ScalarNetworkMath();
+    }
+}
@@ -0,0 +1,157 @@
+package chess.engine;
+
+import chess.Bitboards;
+import chess.ChessGame;
+import chess.ChessPiece.PieceType;
+import chess.Move;
+import chess.MoveList;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * Looks up opening moves in a book file, so the engine can play known
+ * openings without searching
+ * <p>
+ * The file uses the Polyglot format: 16 byte big endian entries of a
+ * position key, a move, a weight and a learn field the engine ignores,
+ * sorted by key. Positions are keyed by {@link ChessGame#polyglotKey()},
+ * so books made by {@link BookBuilder} and by other Polyglot tools both
+ * work. The file is memory mapped and searched in place with a binary
+ * search, so opening a book reads nothing onto the heap.
+ */
+public final class OpeningBook {
+
+    static final int ENTRY_BYTES = 16;
+
+    //Polyglot promotion codes, indexed by PieceType ordinal
+    private static final int[] PROMOTION_CODES = {0, 4, 2, 1, 3, 0};
+
+    private final ByteBuffer entries;
+    private final int size;
+
+    private OpeningBook(ByteBuffer entries) {
+        this.entries = entries;
+        this.size = entries.capacity() / ENTRY_BYTES;
+    }
+
+    /**
+     * @throws IOException if the file cannot be read or is not a whole number of entries
+     */
+    public static OpeningBook open(Path path) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if(channel.size() % ENTRY_BYTES != 0) {
+                throw new IOException("Not an opening book: " + path);
+            }
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @return the number of entries in the book
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the book moves of the position that are legal in it, with
+     * their weights, in file order
+     */
+    public List<Entry> probe(ChessGame game) {
+        List<Entry> found = new ArrayList<>();
+        long key = game.polyglotKey();
+        int index = firstIndex(key);
+        if(index == size) {
+            return found;
+        }
+
+        MoveList legal = new MoveList();
+        game.legalMoves(legal);
+        for(; index < size && entries.getLong(index * ENTRY_BYTES) == key; index++) {
+            int bookMove = entries.getShort(index * ENTRY_BYTES + 8) & 0xFFFF;
+            int weight = entries.getShort(index * ENTRY_BYTES + 10) & 0xFFFF;
+            for(int i = 0; i < legal.size(); i++) {
+                if(encode(legal.get(i)) == bookMove) {
+                    found.add(new Entry(legal.get(i), weight));
+                    break;
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Picks a book move at random, each with chance in proportion to its
+     * weight
+     *
+     * @return the move, or {@link Move#NONE} if the book has none for the position
+     */
+    public int pick(ChessGame game, RandomGenerator random) {
+        List<Entry> found = probe(game);
+        int total = 0;
+        for(Entry entry : found) {
+            total += entry.weight();
+        }
+        if(total == 0) {
+            return Move.NONE;
+        }
+        int roll = random.nextInt(total);
+        for(Entry entry : found) {
+            roll -= entry.weight();
+            if(roll < 0) {
+                return entry.move();
+            }
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * @return the index of the first entry with the key, or of the first
+     * with a larger key if there is none. Keys compare unsigned.
+     */
+    private int firstIndex(long key) {
+        int low = 0;
+        int high = size;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(Long.compareUnsigned(entries.getLong(middle * ENTRY_BYTES), key) < 0) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return a move as a Polyglot book stores it: the end square in bits
+     * 0-5, the start square in bits 6-11 and the promotion in bits 12-14.
+     * Castles are stored as the king taking its own rook.
+     */
+    static int encode(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        if(Move.flag(move) == Move.CASTLE) {
+            to = (Bitboards.column(to) == 7) ? to + 1 : to - 2;
+        }
+        PieceType promotion = Move.promotion(move);
+        int code = (promotion == null) ? 0 : PROMOTION_CODES[promotion.ordinal()];
+        return to | from << 6 | code << 12;
+    }
+
+    /**
+     * A move the book has for a position
+     *
+     * @param move   the packed move
+     * @param weight how often to play it relative to the other moves of the position
+     */
+    public record Entry(int move, int weight) { }
+}
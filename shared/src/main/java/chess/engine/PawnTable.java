@@ -0,0 +1,126 @@
+package chess.engine;
+
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece.PieceType;
+
+/**
+ * Scores pawn structure and caches the scores by pawn-only Zobrist key
+ * <p>
+ * Pawns move rarely compared to other pieces, so almost every position a
+ * search reaches shares its pawns with one scored before. Each entry is
+ * the key and the middlegame and endgame scores packed into one int, in
+ * two parallel arrays owned by one search thread.
+ */
+final class PawnTable {
+
+    private static final int DOUBLED_MIDDLEGAME = -10;
+    private static final int DOUBLED_ENDGAME = -20;
+    private static final int ISOLATED_MIDDLEGAME = -10;
+    private static final int ISOLATED_ENDGAME = -15;
+    //Passed pawn bonuses by how many rows the pawn has advanced
+    private static final int[] PASSED_MIDDLEGAME = {0, 5, 10, 15, 25, 40, 60, 0};
+    private static final int[] PASSED_ENDGAME = {0, 10, 20, 35, 55, 85, 120, 0};
+
+    private static final long[] FILES = new long[8];
+    private static final long[] ADJACENT_FILES = new long[8];
+    //Squares in front of a pawn, on its file and both neighbours, by color and square
+    private static final long[][] PASSED_MASKS = new long[2][64];
+
+    static {
+        for(int col = 0; col < 8; col++) {
+            FILES[col] = 0x0101010101010101L << col;
+        }
+        for(int col = 0; col < 8; col++) {
+            ADJACENT_FILES[col] = (col > 0 ? FILES[col - 1] : 0L) | (col < 7 ? FILES[col + 1] : 0L);
+        }
+        for(int square = 0; square < 64; square++) {
+            int col = square & 7;
+            long span = FILES[col] | ADJACENT_FILES[col];
+            int rowIndex = square >>> 3;
+            long whiteAhead = (rowIndex == 7) ? 0L : -1L << ((rowIndex + 1) * 8);
+            long blackAhead = (rowIndex == 0) ? 0L : -1L >>> ((8 - rowIndex) * 8);
+            PASSED_MASKS[TeamColor.WHITE.ordinal()][square] = span & whiteAhead;
+            PASSED_MASKS[TeamColor.BLACK.ordinal()][square] = span & blackAhead;
+        }
+    }
+
+    private final long[] keys;
+    private final int[] scores;
+    private final int mask;
+
+    /**
+     * @param entries how many pawn structures to keep, rounded down to a power of two
+     */
+    PawnTable(int entries) {
+        int size = Integer.highestOneBit(Math.max(entries, 1));
+        keys = new long[size];
+        scores = new int[size];
+        mask = size - 1;
+    }
+
+    /**
+     * @return the pawn structure score, white minus black, packed as by
+     * {@link #pack(int, int)}
+     */
+    int probe(ChessBoard board) {
+        long key = board.getPawnKey();
+        int index = (int) key & mask;
+        if(keys[index] != key) {
+            keys[index] = key;
+            scores[index] = evaluate(board);
+        }
+        return scores[index];
+    }
+
+    static int pack(int middlegame, int endgame) {
+        return (middlegame << 16) + endgame;
+    }
+
+    static int middlegame(int packed) {
+        return (packed + 0x8000) >> 16;
+    }
+
+    static int endgame(int packed) {
+        return (short) packed;
+    }
+
+    /**
+     * @return doubled, isolated and passed pawn scores, white minus black
+     */
+    static int evaluate(ChessBoard board) {
+        int middlegame = 0;
+        int endgame = 0;
+        for(TeamColor color : TeamColor.values()) {
+            int sign = (color == TeamColor.WHITE) ? 1 : -1;
+            long pawns = board.getBitboard(color, PieceType.PAWN);
+            long enemyPawns = board.getBitboard(color.opponent(), PieceType.PAWN);
+
+            for(int col = 0; col < 8; col++) {
+                int onFile = Long.bitCount(pawns & FILES[col]);
+                if(onFile > 1) {
+                    middlegame += sign * DOUBLED_MIDDLEGAME * (onFile - 1);
+                    endgame += sign * DOUBLED_ENDGAME * (onFile - 1);
+                }
+            }
+
+            long remaining = pawns;
+            while(remaining != 0) {
+                int square = Bitboards.firstSquare(remaining);
+                remaining &= remaining - 1;
+
+                if((pawns & ADJACENT_FILES[square & 7]) == 0) {
+                    middlegame += sign * ISOLATED_MIDDLEGAME;
+                    endgame += sign * ISOLATED_ENDGAME;
+                }
+                if((enemyPawns & PASSED_MASKS[color.ordinal()][square]) == 0) {
+                    int advanced = (color == TeamColor.WHITE) ? (square >>> 3) : 7 - (square >>> 3);
+                    middlegame += sign * PASSED_MIDDLEGAME[advanced];
+                    endgame += sign * PASSED_ENDGAME[advanced];
+                }
+            }
+        }
+        return pack(middlegame, endgame);
+    }
+}
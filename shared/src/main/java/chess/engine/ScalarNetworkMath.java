@@ -0,0 +1,31 @@
+package chess.engine;
+
+/**
+ * Network arithmetic one lane at a time, for JVMs without the vector module
+ */
+final class ScalarNetworkMath implements NetworkMath {
+
+    @Override
+    public void add(short[] accumulator, short[] weights, int offset) {
+        for(int i = 0; i < accumulator.length; i++) {
+            accumulator[i] += weights[offset + i];
+        }
+    }
+
+    @Override
+    public void subtract(short[] accumulator, short[] weights, int offset) {
+        for(int i = 0; i < accumulator.length; i++) {
+            accumulator[i] -= weights[offset + i];
+        }
+    }
+
+    @Override
+    public int activate(short[] accumulator, short[] weights, int offset) {
+        int sum = 0;
+        for(int i = 0; i < accumulator.length; i++) {
+            int value = Math.min(Math.max(accumulator[i], 0), Network.ACTIVATION_LIMIT);
+            sum += value * weights[offset + i];
+        }
+        return sum;
+    }
+}
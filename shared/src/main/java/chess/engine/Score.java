@@ -0,0 +1,37 @@
+package chess.engine;
+
+/**
+ * Score constants shared by the search and evaluation
+ * <p>
+ * Scores are in centipawns from the side to move. A mate found at ply p
+ * scores {@link #MATE} - p, so shorter mates score higher.
+ */
+final class Score {
+
+    static final int INFINITY = 32000;
+    static final int MATE = 31000;
+    static final int DRAW = 0;
+    //Tablebase wins score below every mate score, so the transposition table never adjusts them by ply
+    static final int TABLEBASE_WIN = MATE - 2 * Searcher.MAX_PLY;
+
+    private Score() { }
+
+    /**
+     * @return the score for being checkmated at a ply
+     */
+    static int matedIn(int ply) {
+        return -MATE + ply;
+    }
+
+    /**
+     * @param plies plies to mate with best play, as a tablebase gives it
+     * @return the score of a tablebase win, higher for quicker mates
+     */
+    static int tablebaseWin(int plies) {
+        return TABLEBASE_WIN - plies;
+    }
+
+    static boolean isMate(int score) {
+        return Math.abs(score) >= MATE - SearchLimits.MAX_DEPTH * 2;
+    }
+}
@@ -0,0 +1,31 @@
+package chess.engine;
+
+/**
+ * Selective search techniques that can be switched off one at a time, to
+ * measure what each one is worth
+ */
+public enum SearchFeature {
+    /**
+     * Lets the opponent move twice; if the position still holds above
+     * beta, a reduced search is trusted to cut off
+     */
+    NULL_MOVE,
+    /**
+     * Searches quiet moves late in the order less deeply, less so for
+     * moves with good history
+     */
+    LATE_MOVE_REDUCTIONS,
+    /**
+     * Cuts off near the leaves when the static score is far above beta
+     */
+    REVERSE_FUTILITY,
+    /**
+     * Skips quiet moves near the leaves when the static score is too far
+     * below alpha for them to catch up
+     */
+    FUTILITY,
+    /**
+     * Searches positions in check one ply deeper
+     */
+    CHECK_EXTENSIONS
+}
@@ -0,0 +1,96 @@
+package chess.engine;
+
+/**
+ * When a search should stop
+ * <p>
+ * A search ends at whichever limit it reaches first. A limit of 0 means
+ * that limit is not used, so a search with no limits runs until stopped.
+ * <p>
+ * With a clock, the search plans a share of the time left plus most of
+ * the increment. That share is a soft limit: once it has passed, no new
+ * iteration starts. A hard limit a few times larger ends the iteration
+ * in progress, and is never more than a third of the time left.
+ *
+ * @param depth     the deepest iteration to search, in plies
+ * @param moveTime  the most time to search, in milliseconds
+ * @param nodes     the most nodes to search
+ * @param clockTime the time left on the side to move's clock, in milliseconds
+ * @param increment the time added to that clock after each move, in milliseconds
+ */
+public record SearchLimits(int depth, long moveTime, long nodes, long clockTime, long increment) {
+
+    public static final int MAX_DEPTH = 100;
+
+    //A clock search plans as if this many moves were left
+    private static final int MOVES_TO_GO = 30;
+    private static final int HARD_LIMIT_FACTOR = 4;
+    private static final int MAX_SHARE_OF_CLOCK = 3;
+    //Kept back from the clock for sending the move
+    private static final long MOVE_OVERHEAD = 20;
+
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, 0, 0, 0, 0);
+    }
+
+    public static SearchLimits moveTime(long millis) {
+        return new SearchLimits(0, millis, 0, 0, 0);
+    }
+
+    public static SearchLimits nodes(long nodes) {
+        return new SearchLimits(0, 0, nodes, 0, 0);
+    }
+
+    /**
+     * @param clockTime the time left on the side to move's clock, in milliseconds
+     * @param increment the time added after each move, in milliseconds
+     */
+    public static SearchLimits clock(long clockTime, long increment) {
+        return new SearchLimits(0, 0, 0, clockTime, increment);
+    }
+
+    /**
+     * @return limits that never stop the search, for analysis until {@link Engine#stop()}
+     */
+    public static SearchLimits infinite() {
+        return new SearchLimits(0, 0, 0, 0, 0);
+    }
+
+    /**
+     * @return the deepest iteration to search, capped at {@link #MAX_DEPTH}
+     */
+    public int maxDepth() {
+        return (depth <= 0 || depth > MAX_DEPTH) ? MAX_DEPTH : depth;
+    }
+
+    /**
+     * @return the time after which no new iteration starts, in
+     * milliseconds, or 0 if there is none
+     */
+    long softMillis() {
+        if(clockTime <= 0) {
+            return moveTime;
+        }
+        long planned = Math.min(available() / MOVES_TO_GO + increment * 3 / 4, clockHardMillis());
+        return moveTime > 0 ? Math.min(moveTime, planned) : planned;
+    }
+
+    /**
+     * @return the time after which the search stops at once, in
+     * milliseconds, or 0 if there is none
+     */
+    long hardMillis() {
+        if(clockTime <= 0) {
+            return moveTime;
+        }
+        return moveTime > 0 ? Math.min(moveTime, clockHardMillis()) : clockHardMillis();
+    }
+
+    private long clockHardMillis() {
+        long planned = available() / MOVES_TO_GO + increment * 3 / 4;
+        return Math.max(1, Math.min(planned * HARD_LIMIT_FACTOR, available() / MAX_SHARE_OF_CLOCK));
+    }
+
+    private long available() {
+        return Math.max(1, clockTime - MOVE_OVERHEAD);
+    }
+}
@@ -0,0 +1,97 @@
+package chess.engine;
+
+import chess.ChessMove;
+import chess.Move;
+
+import java.util.List;
+
+/**
+ * The outcome of a search
+ *
+ * @param bestMove the packed best move, or {@link Move#NONE} if the side to move has none
+ * @param score    the score of the best move in centipawns, from the side to move
+ * @param depth    the deepest iteration that finished
+ * @param pv       the expected line of play, starting with the best move
+ * @param stats    what the search did to get here
+ * @param lines    the best lines found, best first: just the principal
+ *                 variation unless the engine was asked for more
+ */
+public record SearchResult(int bestMove, int score, int depth, int[] pv, SearchStats stats, List<Line> lines) {
+
+    /**
+     * One line of play found by a search
+     *
+     * @param score the score of the line in centipawns, from the side to move
+     * @param pv    the moves of the line, starting with the move it recommends
+     */
+    public record Line(int score, int[] pv) {
+
+        /**
+         * @return the packed move the line starts with, or {@link Move#NONE} if it is empty
+         */
+        public int move() {
+            return pv.length == 0 ? Move.NONE : pv[0];
+        }
+
+        public boolean isMate() {
+            return Score.isMate(score);
+        }
+
+        public String pvString() {
+            return SearchResult.pvString(pv);
+        }
+    }
+
+    /**
+     * @return the best move, or null if the side to move has none
+     */
+    public ChessMove bestChessMove() {
+        return bestMove == Move.NONE ? null : Move.toChessMove(bestMove);
+    }
+
+    /**
+     * @return how many positions were searched
+     */
+    public long nodes() {
+        return stats.nodes();
+    }
+
+    /**
+     * @return how long the search took
+     */
+    public long nanos() {
+        return stats.nanos();
+    }
+
+    /**
+     * @return nodes searched per second
+     */
+    public long nps() {
+        return stats.nps();
+    }
+
+    /**
+     * @return whether the score is a forced mate for either side
+     */
+    public boolean isMate() {
+        return Score.isMate(score);
+    }
+
+    /**
+     * @return the principal variation in coordinate notation, such as "e2e4 e7e5"
+     */
+    public String pvString() {
+        return pvString(pv);
+    }
+
+    private static String pvString(int[] pv) {
+        StringBuilder builder = new StringBuilder();
+        for(int move : pv) {
+            if(!builder.isEmpty()) {
+                builder.append(' ');
+            }
+            builder.append(Move.toString(move));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,76 @@
+package chess.engine;
+
+import java.util.Arrays;
+
+/**
+ * What a search did, for tuning the engine and sizing the machines it runs on
+ * <p>
+ * Counts cover every thread of the search. Iterations are the main
+ * thread's only, since helpers search other depths at the same time.
+ *
+ * @param nodes               positions searched, quiescence included
+ * @param quiescenceNodes     positions searched by the quiescence search
+ * @param nanos               how long the search took
+ * @param tableProbes         transposition table lookups
+ * @param tableHits           lookups that found the position
+ * @param tableMissesOccupied lookups that missed while the position's bucket held other entries
+ * @param cutoffs             beta cutoffs in the main search
+ * @param firstMoveCutoffs    beta cutoffs made by the first move searched
+ * @param iterationNodes      nodes searched by each finished iteration, depth 1 first
+ * @param iterationNanos      time taken by each finished iteration, depth 1 first
+ */
+public record SearchStats(long nodes, long quiescenceNodes, long nanos, long tableProbes, long tableHits,
+                          long tableMissesOccupied, long cutoffs, long firstMoveCutoffs, long[] iterationNodes,
+                          long[] iterationNanos) {
+
+    /**
+     * @return nodes searched per second
+     */
+    public long nps() {
+        return nanos <= 0 ? 0 : nodes * 1_000_000_000L / nanos;
+    }
+
+    /**
+     * @return the share of table lookups that found the position
+     */
+    public double tableHitRate() {
+        return tableProbes == 0 ? 0 : (double) tableHits / tableProbes;
+    }
+
+    /**
+     * @return the share of cutoffs made by the first move, which is how
+     * good the move ordering is
+     */
+    public double firstMoveCutoffRate() {
+        return cutoffs == 0 ? 0 : (double) firstMoveCutoffs / cutoffs;
+    }
+
+    /**
+     * @return how many times more nodes the last iteration took than the
+     * one before it, or 0 before two iterations have finished
+     */
+    public double effectiveBranchingFactor() {
+        int last = iterationNodes.length - 1;
+        return last < 1 || iterationNodes[last - 1] == 0 ? 0 : (double) iterationNodes[last] / iterationNodes[last - 1];
+    }
+
+    /**
+     * @return these statistics with another thread's counts added, keeping
+     * this one's time and iterations
+     */
+    SearchStats plus(SearchStats other) {
+        return new SearchStats(nodes + other.nodes, quiescenceNodes + other.quiescenceNodes, nanos,
+                tableProbes + other.tableProbes, tableHits + other.tableHits,
+                tableMissesOccupied + other.tableMissesOccupied, cutoffs + other.cutoffs,
+                firstMoveCutoffs + other.firstMoveCutoffs, iterationNodes, iterationNanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("nodes %,d  qnodes %,d  nps %,d  hash hits %.1f%%  occupied misses %,d  "
+                        + "first move cutoffs %.1f%%  ebf %.2f  iterations %s ms",
+                nodes, quiescenceNodes, nps(), 100 * tableHitRate(), tableMissesOccupied, 100 * firstMoveCutoffRate(),
+                effectiveBranchingFactor(), Arrays.toString(Arrays.stream(iterationNanos).map(n -> n / 1_000_000)
+                        .toArray()));
+    }
+}
@@ -0,0 +1,611 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece.PieceType;
+import chess.Move;
+import chess.MoveList;
+import chess.StaticExchange;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * One thread's alpha-beta search of a position
+ * <p>
+ * Searches with principal variation search inside iterative deepening.
+ * From {@link #ASPIRATION_DEPTH} on, each iteration starts with a narrow
+ * window around the last score and widens it only if the score falls
+ * outside. The searcher owns its own copy of the game and all of its
+ * buffers, so nothing is allocated per node.
+ * <p>
+ * Away from the principal variation the tree is pruned selectively: null
+ * move pruning, reverse futility and futility pruning near the leaves, and
+ * late move reductions for quiet moves ordered late. Positions in check
+ * are extended a ply. Each can be switched off with {@link SearchFeature}.
+ */
+final class Searcher {
+
+    static final int MAX_PLY = SearchLimits.MAX_DEPTH + 28;
+    //No position has more legal moves than this
+    private static final int MAX_MOVES = 256;
+
+    private static final int ASPIRATION_DEPTH = 4;
+    private static final int ASPIRATION_WINDOW = 30;
+    //How many nodes pass between checks of the clock and the node limit
+    private static final int CHECK_INTERVAL = 1024;
+    //How often a long iteration reports progress
+    private static final long INFO_INTERVAL_NANOS = 1_000_000_000L;
+    //History scores are halved when one passes this, so old cutoffs fade
+    private static final int MAX_HISTORY = 1 << 20;
+    //How far a capture may fall short of alpha before quiescence skips it
+    private static final int DELTA_MARGIN = 200;
+    //Pruning margins are per ply of depth left
+    private static final int REVERSE_FUTILITY_DEPTH = 6;
+    private static final int REVERSE_FUTILITY_MARGIN = 90;
+    private static final int FUTILITY_DEPTH = 3;
+    private static final int FUTILITY_MARGIN = 120;
+    private static final int NULL_MOVE_DEPTH = 3;
+    private static final int NULL_MOVE_REDUCTION = 2;
+    private static final int LMR_DEPTH = 3;
+    private static final int LMR_MOVES = 3;
+    //A history score this many bits long takes a ply off a late move reduction
+    private static final int LMR_HISTORY_SHIFT = 12;
+    //Late move reductions by depth and move number, growing with the log of each
+    private static final int[][] REDUCTIONS = new int[64][64];
+
+    static {
+        for(int depth = 1; depth < 64; depth++) {
+            for(int moveNumber = 1; moveNumber < 64; moveNumber++) {
+                REDUCTIONS[depth][moveNumber] = (int) (0.75 + Math.log(depth) * Math.log(moveNumber) / 2.25);
+            }
+        }
+    }
+
+    private final ChessGame game;
+    private final TranspositionTable table;
+    private final SearchLimits limits;
+    private final AtomicBoolean stopFlag;
+    private final int helperId;
+    private final long startNanos;
+    private final long deadline;
+    private final long softDeadline;
+
+    private final Evaluator evaluator;
+    private final Tablebase tablebase;
+    private final boolean nullMove;
+    private final boolean lateMoveReductions;
+    private final boolean reverseFutility;
+    private final boolean futility;
+    private final boolean checkExtensions;
+    private final MovePicker[] pickers = new MovePicker[MAX_PLY];
+    private final int[][] killers = new int[MAX_PLY][2];
+    //Butterfly history: how often each from/to pair caused a cutoff, per color
+    private final int[][] history = new int[2][64 * 64];
+    private final int[][] pvTable = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+    private final long[] keys = new long[MAX_PLY];
+
+    private final Consumer<SearchResult> info;
+    private long nextInfoNanos;
+
+    private long nodes;
+    private long quiescenceNodes;
+    private long tableProbes;
+    private long tableHits;
+    private long tableMissesOccupied;
+    private long cutoffs;
+    private long firstMoveCutoffs;
+    private final long[] iterationNodes = new long[SearchLimits.MAX_DEPTH];
+    private final long[] iterationNanos = new long[SearchLimits.MAX_DEPTH];
+    private int iterations;
+
+    private int rootDepth;
+    private boolean stopped;
+    private int bestMove = Move.NONE;
+    private int bestScore;
+    private int completedDepth;
+    private int[] pv = new int[0];
+    private List<SearchResult.Line> lines = List.of();
+
+    //Multi-PV searches the root once per line, each time without the moves of the lines before
+    private final int multiPv;
+    private final int[] excludedRootMoves = new int[MAX_MOVES];
+    private int fixedExclusions;
+    private int excludedCount;
+
+    /**
+     * @param helperId  0 for the main thread, otherwise which Lazy SMP
+     *                  helper this is
+     * @param network   the network to evaluate with, or null for the hand
+     *                  written evaluation
+     * @param tablebase endgame tables to settle small endings with, or null
+     * @param features  which selective search techniques to use
+     * @param info      told the result so far after each iteration and
+     *                  every second within one, or null
+     * @param multiPv   how many of the best lines to find
+     */
+    Searcher(ChessGame game, TranspositionTable table, SearchLimits limits, AtomicBoolean stopFlag, int helperId,
+             Network network, Tablebase tablebase, Set<SearchFeature> features, Consumer<SearchResult> info,
+             int multiPv) {
+        this.game = new ChessGame(game);
+        this.table = table;
+        this.limits = limits;
+        this.stopFlag = stopFlag;
+        this.helperId = helperId;
+        this.evaluator = new Evaluator(network);
+        this.tablebase = tablebase;
+        this.nullMove = features.contains(SearchFeature.NULL_MOVE);
+        this.lateMoveReductions = features.contains(SearchFeature.LATE_MOVE_REDUCTIONS);
+        this.reverseFutility = features.contains(SearchFeature.REVERSE_FUTILITY);
+        this.futility = features.contains(SearchFeature.FUTILITY);
+        this.checkExtensions = features.contains(SearchFeature.CHECK_EXTENSIONS);
+        this.info = info;
+        this.multiPv = multiPv;
+        this.startNanos = System.nanoTime();
+        this.nextInfoNanos = startNanos + INFO_INTERVAL_NANOS;
+        this.deadline = limits.hardMillis() > 0 ? startNanos + limits.hardMillis() * 1_000_000L : Long.MAX_VALUE;
+        this.softDeadline = limits.softMillis() > 0 ? startNanos + limits.softMillis() * 1_000_000L : Long.MAX_VALUE;
+        for(int i = 0; i < MAX_PLY; i++) {
+            pickers[i] = new MovePicker();
+        }
+    }
+
+    /**
+     * Searches one iteration deeper at a time until a limit is reached.
+     * The first iteration always finishes, so there is always a move to
+     * play if one exists. Odd numbered helpers start one ply deeper, so
+     * helpers spread over neighbouring depths and fill the shared table
+     * with results the main thread will soon want.
+     */
+    SearchResult run() {
+        MoveList rootMoves = new MoveList();
+        game.legalMoves(rootMoves);
+        int lineCount = Math.max(1, Math.min(multiPv, rootMoves.size() - fixedExclusions));
+        int[] lineScores = new int[lineCount];
+
+        for(int depth = 1 + (helperId & 1); depth <= limits.maxDepth(); depth++) {
+            rootDepth = depth;
+            long iterationStart = System.nanoTime();
+            long nodesBefore = nodes;
+            SearchResult.Line[] found = new SearchResult.Line[lineCount];
+            for(int line = 0; line < lineCount && !stopped; line++) {
+                excludedCount = fixedExclusions + line;
+                int score = aspirationSearch(depth, lineScores[line]);
+                found[line] = new SearchResult.Line(score, Arrays.copyOf(pvTable[0], pvLength[0]));
+                excludedRootMoves[excludedCount] = found[line].move();
+            }
+            excludedCount = fixedExclusions;
+            if(stopped) {
+                break;
+            }
+
+            //A later line can score above an earlier one once it is searched with what the earlier ones stored
+            Arrays.sort(found, (first, second) -> Integer.compare(second.score(), first.score()));
+            for(int line = 0; line < lineCount; line++) {
+                lineScores[line] = found[line].score();
+            }
+            iterationNodes[iterations] = nodes - nodesBefore;
+            iterationNanos[iterations++] = System.nanoTime() - iterationStart;
+            completedDepth = depth;
+            lines = List.of(found);
+            bestScore = found[0].score();
+            pv = found[0].pv();
+            bestMove = found[0].move();
+            report();
+
+            //An iteration begun after the soft limit would rarely finish before the hard one
+            if(bestMove == Move.NONE || shouldStop() || System.nanoTime() >= softDeadline) {
+                break;
+            }
+        }
+        return result();
+    }
+
+    /**
+     * @return the deepest finished iteration's result, with statistics up to now
+     */
+    private SearchResult result() {
+        SearchStats stats = new SearchStats(nodes, quiescenceNodes, System.nanoTime() - startNanos, tableProbes,
+                tableHits, tableMissesOccupied, cutoffs, firstMoveCutoffs, Arrays.copyOf(iterationNodes, iterations),
+                Arrays.copyOf(iterationNanos, iterations));
+        return new SearchResult(bestMove, bestScore, completedDepth, pv, stats, lines);
+    }
+
+    private void report() {
+        if(info != null) {
+            info.accept(result());
+            nextInfoNanos = System.nanoTime() + INFO_INTERVAL_NANOS;
+        }
+    }
+
+    private int aspirationSearch(int depth, int previousScore) {
+        if(depth < ASPIRATION_DEPTH || Score.isMate(previousScore)) {
+            return search(-Score.INFINITY, Score.INFINITY, depth, 0);
+        }
+
+        int window = ASPIRATION_WINDOW;
+        int alpha = Math.max(previousScore - window, -Score.INFINITY);
+        int beta = Math.min(previousScore + window, Score.INFINITY);
+        while(true) {
+            int score = search(alpha, beta, depth, 0);
+            if(stopped) {
+                return score;
+            }
+            if(score <= alpha) {
+                alpha = Math.max(alpha - window, -Score.INFINITY);
+            }
+            else if(score >= beta) {
+                beta = Math.min(beta + window, Score.INFINITY);
+            }
+            else {
+                return score;
+            }
+            window *= 2;
+        }
+    }
+
+    private int search(int alpha, int beta, int depth, int ply) {
+        pvLength[ply] = 0;
+        if(aborted()) {
+            return 0;
+        }
+        nodes++;
+
+        keys[ply] = game.zobristKey();
+        if(ply > 0 && isRepetition(ply)) {
+            return Score.DRAW;
+        }
+        if(ply > 0 && tablebase != null) {
+            int score = probeTablebase();
+            if(score != Tablebase.UNKNOWN) {
+                return score;
+            }
+        }
+        boolean inCheck = game.isInCheck(game.getTeamTurn());
+        if(inCheck && checkExtensions) {
+            depth++;
+        }
+        if(depth <= 0) {
+            return quiescence(alpha, beta, ply);
+        }
+        if(ply >= MAX_PLY - 1) {
+            return evaluator.evaluate(game);
+        }
+
+        //Table scores only cut off null window nodes, so the principal variation stays whole
+        boolean pvNode = beta - alpha > 1;
+        long entry = table.probe(keys[ply]);
+        tableProbes++;
+        if(entry != 0) {
+            tableHits++;
+        }
+        else if(table.isOccupied(keys[ply])) {
+            tableMissesOccupied++;
+        }
+        if(!pvNode && entry != 0 && TranspositionTable.depth(entry) >= depth) {
+            int score = TranspositionTable.scoreFromTable(TranspositionTable.score(entry), ply);
+            int bound = TranspositionTable.bound(entry);
+            if(bound == TranspositionTable.EXACT
+                    || (bound == TranspositionTable.LOWER && score >= beta)
+                    || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                return score;
+            }
+        }
+
+        int staticEval = (pvNode || inCheck) ? -Score.INFINITY : evaluator.evaluate(game);
+        if(!pvNode && !inCheck) {
+            if(reverseFutility && depth <= REVERSE_FUTILITY_DEPTH && !Score.isMate(beta)
+                    && staticEval - REVERSE_FUTILITY_MARGIN * depth >= beta) {
+                return staticEval;
+            }
+            //Never two null moves in a row, and never with only pawns, where passing can be the best move
+            if(nullMove && depth >= NULL_MOVE_DEPTH && staticEval >= beta && game.lastMove() != Move.NONE
+                    && hasPieces()) {
+                int reduction = NULL_MOVE_REDUCTION + depth / 4;
+                evaluator.makeNullMove(game);
+                int score = -search(-beta, -beta + 1, depth - 1 - reduction, ply + 1);
+                evaluator.unmakeMove(game);
+                if(stopped) {
+                    return 0;
+                }
+                if(score >= beta) {
+                    return Score.isMate(score) ? beta : score;
+                }
+            }
+        }
+        boolean futile = futility && !pvNode && !inCheck && depth <= FUTILITY_DEPTH && !Score.isMate(alpha)
+                && staticEval + FUTILITY_MARGIN * depth <= alpha;
+
+        MovePicker picker = pickers[ply];
+        picker.init(game, entry == 0 ? Move.NONE : TranspositionTable.move(entry), killers[ply], history);
+        int[] colorHistory = history[game.getTeamTurn().ordinal()];
+
+        int originalAlpha = alpha;
+        int bestScore = -Score.INFINITY;
+        int bestMove = Move.NONE;
+        int move;
+        for(int i = 0; (move = picker.next()) != Move.NONE; i++) {
+            if(ply == 0 && isExcluded(move)) {
+                //Not counted, so the first move searched still gets the full window
+                i--;
+                continue;
+            }
+            boolean quiet = !MovePicker.isNoisy(game.getBoard(), move);
+            int moveHistory = colorHistory[Move.from(move) << 6 | Move.to(move)];
+            evaluator.makeMove(game, move);
+            boolean givesCheck = game.isInCheck(game.getTeamTurn());
+
+            if(futile && quiet && i > 0 && !givesCheck) {
+                evaluator.unmakeMove(game);
+                bestScore = Math.max(bestScore, staticEval + FUTILITY_MARGIN * depth);
+                continue;
+            }
+
+            int score;
+            if(i == 0) {
+                score = -search(-beta, -alpha, depth - 1, ply + 1);
+            }
+            else {
+                int reduction = 0;
+                if(lateMoveReductions && depth >= LMR_DEPTH && i >= LMR_MOVES && quiet && !inCheck && !givesCheck
+                        && move != killers[ply][0] && move != killers[ply][1]) {
+                    reduction = reduction(depth, i, moveHistory, pvNode);
+                }
+                //Later moves only need to be shown worse than the first, which a null window does cheaply
+                score = -search(-alpha - 1, -alpha, depth - 1 - reduction, ply + 1);
+                if(reduction > 0 && score > alpha) {
+                    score = -search(-alpha - 1, -alpha, depth - 1, ply + 1);
+                }
+                if(score > alpha && score < beta) {
+                    score = -search(-beta, -alpha, depth - 1, ply + 1);
+                }
+            }
+            evaluator.unmakeMove(game);
+
+            if(stopped) {
+                return 0;
+            }
+            if(score > bestScore) {
+                bestScore = score;
+                if(score > alpha) {
+                    alpha = score;
+                    bestMove = move;
+                    updatePv(ply, move);
+                    if(score >= beta) {
+                        cutoffs++;
+                        if(i == 0) {
+                            firstMoveCutoffs++;
+                        }
+                        if(quiet) {
+                            updateQuietStats(ply, move, depth);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+
+        if(bestScore == -Score.INFINITY) {
+            return game.isInCheck(game.getTeamTurn()) ? Score.matedIn(ply) : Score.DRAW;
+        }
+
+        int bound = bestScore >= beta ? TranspositionTable.LOWER
+                : (bestScore > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER);
+        //The root's entry would otherwise name the best move left after excluding the better ones
+        if(ply > 0 || excludedCount == 0) {
+            table.store(keys[ply], bestMove, TranspositionTable.scoreToTable(bestScore, ply), depth, bound);
+        }
+        return bestScore;
+    }
+
+    /**
+     * Leaves a move out of the search at the root, as if it were not legal.
+     * Must be called before {@link #run()}.
+     */
+    void excludeRootMove(int move) {
+        excludedRootMoves[fixedExclusions++] = move;
+        excludedCount = fixedExclusions;
+    }
+
+    private boolean isExcluded(int move) {
+        for(int i = 0; i < excludedCount; i++) {
+            if(excludedRootMoves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Searches only captures and promotions until the position is quiet,
+     * so a leaf is never scored in the middle of an exchange. The side to
+     * move may stand pat on the static score instead of capturing, except
+     * in check, where every evasion is searched. Captures that could not
+     * lift the score to alpha even if the captured piece came for free,
+     * and captures that lose material by static exchange, are skipped.
+     */
+    private int quiescence(int alpha, int beta, int ply) {
+        pvLength[ply] = 0;
+        if(aborted()) {
+            return 0;
+        }
+        nodes++;
+        quiescenceNodes++;
+
+        if(ply >= MAX_PLY - 1) {
+            return evaluator.evaluate(game);
+        }
+
+        boolean inCheck = game.isInCheck(game.getTeamTurn());
+        MovePicker picker = pickers[ply];
+        int standPat = 0;
+        int bestScore = -Score.INFINITY;
+        if(inCheck) {
+            picker.init(game, Move.NONE, killers[ply], history);
+        }
+        else {
+            standPat = evaluator.evaluate(game);
+            if(standPat >= beta) {
+                return standPat;
+            }
+            alpha = Math.max(alpha, standPat);
+            bestScore = standPat;
+            picker.initCaptures(game, Move.NONE);
+        }
+
+        int move;
+        while((move = picker.next()) != Move.NONE) {
+            if(!inCheck) {
+                if(!Move.isPromotion(move)
+                        && standPat + MovePicker.capturedValue(game.getBoard(), move) + DELTA_MARGIN <= alpha) {
+                    continue;
+                }
+                if(!StaticExchange.seeAtLeast(game.getBoard(), move, 0)) {
+                    continue;
+                }
+            }
+
+            evaluator.makeMove(game, move);
+            int score = -quiescence(-beta, -alpha, ply + 1);
+            evaluator.unmakeMove(game);
+
+            if(stopped) {
+                return 0;
+            }
+            if(score > bestScore) {
+                bestScore = score;
+                if(score > alpha) {
+                    alpha = score;
+                    if(score >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        if(inCheck && bestScore == -Score.INFINITY) {
+            return Score.matedIn(ply);
+        }
+        return bestScore;
+    }
+
+    /**
+     * @return how many plies less to search a late quiet move: more the
+     * later it comes and the deeper the node, one more if it has never
+     * caused a cutoff and up to two less if it often has
+     */
+    private static int reduction(int depth, int moveNumber, int moveHistory, boolean pvNode) {
+        int reduction = REDUCTIONS[Math.min(depth, 63)][Math.min(moveNumber, 63)];
+        if(moveHistory == 0) {
+            reduction++;
+        }
+        reduction -= Math.min(2, moveHistory >> LMR_HISTORY_SHIFT);
+        if(pvNode) {
+            reduction--;
+        }
+        return Math.max(0, Math.min(reduction, depth - 2));
+    }
+
+    /**
+     * @return whether the side to move has a piece other than pawns and its king
+     */
+    private boolean hasPieces() {
+        ChessBoard board = game.getBoard();
+        TeamColor color = game.getTeamTurn();
+        return (board.getOccupancy(color) & ~board.getBitboard(color, PieceType.PAWN)
+                & ~board.getBitboard(color, PieceType.KING)) != 0;
+    }
+
+    /**
+     * Remembers a quiet move that caused a cutoff as a killer for its ply
+     * and credits its from/to pair in the history table
+     */
+    private void updateQuietStats(int ply, int move, int depth) {
+        if(killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+
+        int[] colorHistory = history[game.getTeamTurn().ordinal()];
+        int index = Move.from(move) << 6 | Move.to(move);
+        colorHistory[index] += depth * depth;
+        if(colorHistory[index] > MAX_HISTORY) {
+            for(int i = 0; i < colorHistory.length; i++) {
+                colorHistory[i] /= 2;
+            }
+        }
+    }
+
+    /**
+     * @return the tablebase score of the position, or
+     * {@link Tablebase#UNKNOWN} if it has too many pieces or is not in the
+     * tables
+     */
+    private int probeTablebase() {
+        if(Long.bitCount(game.getBoard().getOccupancy()) > Tablebase.MAX_PIECES
+                || game.getCastlingRights() != 0 || game.getEnPassantPosition() != null) {
+            return Tablebase.UNKNOWN;
+        }
+        int code = tablebase.code(game.getBoard(), game.getTeamTurn());
+        if(code == Tablebase.UNKNOWN || code == Tablebase.ILLEGAL) {
+            return Tablebase.UNKNOWN;
+        }
+        if(code == Tablebase.DRAW) {
+            return Score.DRAW;
+        }
+        int plies = code - 1;
+        return (plies & 1) == 1 ? Score.tablebaseWin(plies) : -Score.tablebaseWin(plies);
+    }
+
+    private boolean isRepetition(int ply) {
+        for(int i = ply - 2; i >= 0; i -= 2) {
+            if(keys[i] == keys[ply]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void updatePv(int ply, int move) {
+        pvTable[ply][0] = move;
+        System.arraycopy(pvTable[ply + 1], 0, pvTable[ply], 1, pvLength[ply + 1]);
+        pvLength[ply] = pvLength[ply + 1] + 1;
+    }
+
+    /**
+     * Checks at every node whether the search must end: the stop flag each
+     * time, since it is one read and a stop should be felt at once, and the
+     * clock and node limit every {@link #CHECK_INTERVAL} nodes. The first
+     * iteration always finishes.
+     */
+    private boolean aborted() {
+        if(!stopped && rootDepth > 1
+                && (stopFlag.get() || ((nodes & (CHECK_INTERVAL - 1)) == 0 && shouldStop()))) {
+            stopped = true;
+        }
+        return stopped;
+    }
+
+    /**
+     * Reports progress if a second has passed since the last report, then
+     * checks the limits
+     */
+    private boolean shouldStop() {
+        long now = System.nanoTime();
+        if(info != null && now >= nextInfoNanos) {
+            report();
+        }
+        return stopFlag.get()
+                || (limits.nodes() > 0 && nodes >= limits.nodes())
+                || now >= deadline;
+    }
+
+    long nodes() {
+        return nodes;
+    }
+}
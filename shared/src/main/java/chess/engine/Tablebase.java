@@ -0,0 +1,156 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessGame.TeamColor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Looks up endgames of up to {@link #MAX_PIECES} pieces in tables made by
+ * {@link TablebaseGenerator}
+ * <p>
+ * Each endgame is one file, named like "KRvKP.tb", holding one byte per
+ * position as numbered by {@link Material}: {@link #DRAW}, {@link #ILLEGAL}
+ * for positions that cannot occur, or otherwise one more than the number
+ * of plies to mate with best play. An odd number of plies means the side
+ * to move mates; an even number means it is mated. Files are memory
+ * mapped, so a probe reads one byte of a page the operating system
+ * caches.
+ * <p>
+ * Tables assume no castling rights and no en passant capture, and ignore
+ * the fifty move rule.
+ */
+public final class Tablebase {
+
+    public static final int MAX_PIECES = Material.MAX_PIECES;
+
+    static final String EXTENSION = ".tb";
+    static final int DRAW = 0;
+    static final int ILLEGAL = 255;
+    //What a position not in any table probes as
+    static final int UNKNOWN = -1;
+
+    private final Material[] materials = new Material[Material.SIGNATURES];
+    private final TeamColor[] strongColors = new TeamColor[Material.SIGNATURES];
+    private final ByteBuffer[] tables = new ByteBuffer[Material.SIGNATURES];
+    private int count;
+
+    Tablebase() { }
+
+    /**
+     * Maps every table file in a directory
+     *
+     * @throws IOException if a file cannot be read or is not the size of its endgame's table
+     */
+    public static Tablebase open(Path directory) throws IOException {
+        Tablebase tablebase = new Tablebase();
+        try(DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for(Path file : files) {
+                tablebase.map(file);
+            }
+        }
+        return tablebase;
+    }
+
+    void map(Path file) throws IOException {
+        String fileName = file.getFileName().toString();
+        Material material = Material.parse(fileName.substring(0, fileName.length() - EXTENSION.length()));
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if(channel.size() != material.size) {
+                throw new IOException("Tablebase file has the wrong size: " + file);
+            }
+            add(material, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    void add(Material material, ByteBuffer table) {
+        int white = material.signature(TeamColor.WHITE);
+        int black = material.signature(TeamColor.BLACK);
+        if(materials[white] == null) {
+            count++;
+        }
+        materials[white] = material;
+        strongColors[white] = TeamColor.WHITE;
+        tables[white] = table;
+        //Endgames with the same pieces on both sides are only looked up with white as the stronger side
+        if(black != white) {
+            materials[black] = material;
+            strongColors[black] = TeamColor.BLACK;
+            tables[black] = table;
+        }
+    }
+
+    /**
+     * @return the table of an endgame, or null if there is none
+     */
+    ByteBuffer table(Material material) {
+        return tables[material.signature(TeamColor.WHITE)];
+    }
+
+    /**
+     * @return how many endgames have tables
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return the table byte of a position, {@link #DRAW} for bare kings, or
+     * {@link #UNKNOWN} if no table has the position's pieces
+     */
+    int code(ChessBoard board, TeamColor turn) {
+        int pieceCount = Long.bitCount(board.getOccupancy());
+        if(pieceCount > MAX_PIECES) {
+            return UNKNOWN;
+        }
+        if(pieceCount == 2) {
+            return DRAW;
+        }
+        int signature = Material.signature(board);
+        if(signature < 0 || tables[signature] == null) {
+            return UNKNOWN;
+        }
+        return tables[signature].get(materials[signature].index(board, turn, strongColors[signature])) & 0xFF;
+    }
+
+    /**
+     * @return the result of a position with best play, or null if no table
+     * has it or it still has castling rights or an en passant capture
+     */
+    public Probe probe(ChessGame game) {
+        if(game.getCastlingRights() != 0 || game.getEnPassantPosition() != null) {
+            return null;
+        }
+        int code = code(game.getBoard(), game.getTeamTurn());
+        if(code == UNKNOWN || code == ILLEGAL) {
+            return null;
+        }
+        if(code == DRAW) {
+            return new Probe(Outcome.DRAW, 0);
+        }
+        int plies = code - 1;
+        return new Probe((plies & 1) == 1 ? Outcome.WIN : Outcome.LOSS, plies);
+    }
+
+    /**
+     * The result for the side to move
+     */
+    public enum Outcome {
+        WIN,
+        DRAW,
+        LOSS
+    }
+
+    /**
+     * @param outcome     the result for the side to move
+     * @param pliesToMate moves by both sides until mate, or 0 for a draw
+     */
+    public record Probe(Outcome outcome, int pliesToMate) { }
+}
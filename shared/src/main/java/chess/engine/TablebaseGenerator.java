@@ -0,0 +1,343 @@
+package chess.engine;
+
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece;
+import chess.ChessPiece.PieceType;
+import chess.MoveList;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Builds endgame tables by retrograde analysis
+ * <p>
+ * Every position of an endgame is numbered and given one byte. The first
+ * pass marks positions that cannot occur and positions where the side to
+ * move is checkmated. After that, pass n finds the positions decided in
+ * exactly n plies: on odd passes, a position is won if some move reaches
+ * a position lost in n - 1 plies; on even passes, it is lost if every
+ * move reaches a position won in fewer than n plies. Moves that capture
+ * or promote read the smaller endgame's table, so those are built first.
+ * Passes stop once two in a row decide nothing and no smaller table has
+ * a longer mate left to pass on. Whatever is still undecided is a draw.
+ * <p>
+ * A pass only reads values decided by earlier passes, so its positions
+ * are split into chunks and run on a pool of threads.
+ * <pre>
+ * java chess.engine.TablebaseGenerator DIRECTORY [--threads N] [--pieces N] [ENDGAME...]
+ * </pre>
+ */
+public final class TablebaseGenerator implements AutoCloseable {
+
+    private static final int CHUNKS_PER_THREAD = 8;
+    private static final int MAX_PLIES = 253;
+
+    private final Path directory;
+    private final int threads;
+    private final ExecutorService workers;
+    private final Tablebase tablebase = new Tablebase();
+
+    /**
+     * @param directory where table files are written, and read from if already built
+     * @param threads   how many threads to build with
+     */
+    public TablebaseGenerator(Path directory, int threads) {
+        if(threads < 1) {
+            throw new IllegalArgumentException("A generator needs at least one thread");
+        }
+        this.directory = directory;
+        this.threads = threads;
+        workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "tablebase-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path directory = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxPieces = Tablebase.MAX_PIECES;
+        List<String> names = new ArrayList<>();
+        for(int i = 0; i < args.length; i++) {
+            switch(args[i]) {
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                case "--pieces" -> maxPieces = Integer.parseInt(args[++i]);
+                default -> {
+                    if(directory == null) {
+                        directory = Path.of(args[i]);
+                    }
+                    else {
+                        names.add(args[i]);
+                    }
+                }
+            }
+        }
+        if(directory == null) {
+            System.err.println("Usage: TablebaseGenerator DIRECTORY [--threads N] [--pieces N] [ENDGAME...]");
+            System.exit(2);
+        }
+
+        Files.createDirectories(directory);
+        try(TablebaseGenerator generator = new TablebaseGenerator(directory, threads)) {
+            if(names.isEmpty()) {
+                generator.generateAll(maxPieces);
+            }
+            for(String name : names) {
+                generator.generate(name);
+            }
+        }
+    }
+
+    /**
+     * Builds every endgame of three to maxPieces pieces that is not built yet
+     */
+    public void generateAll(int maxPieces) throws IOException {
+        List<String> names = Material.all(Math.min(maxPieces, Tablebase.MAX_PIECES));
+        //Smaller endgames first, and fewer pawns first, so each table's successors are ready
+        names.sort(Comparator.comparingInt((String name) -> name.length())
+                .thenComparingLong(name -> name.chars().filter(c -> c == 'P').count()));
+        for(String name : names) {
+            generate(name);
+        }
+    }
+
+    /**
+     * Builds one endgame's table, and any it depends on, unless its file
+     * is already in the directory
+     *
+     * @param name the endgame, such as "KRvKP"
+     * @return the table file
+     */
+    public Path generate(String name) throws IOException {
+        Material material = Material.parse(name);
+        Path file = directory.resolve(name + Tablebase.EXTENSION);
+        if(tablebase.table(material) != null) {
+            return file;
+        }
+        if(Files.exists(file)) {
+            tablebase.map(file);
+            return file;
+        }
+        for(String successor : material.successors()) {
+            generate(successor);
+        }
+
+        long start = System.nanoTime();
+        byte[] values = build(material);
+        Files.write(file, values);
+
+        int[] counts = new int[3];
+        int longest = 0;
+        for(byte value : values) {
+            int code = value & 0xFF;
+            if(code == Tablebase.DRAW) {
+                counts[1]++;
+            }
+            else if(code != Tablebase.ILLEGAL) {
+                counts[((code - 1) & 1) == 1 ? 0 : 2]++;
+                longest = Math.max(longest, code - 1);
+            }
+        }
+        System.out.printf("%-8s %,12d positions  %,12d won  %,12d drawn  %,12d lost  longest %3d plies  %8.2f s%n",
+                name, values.length, counts[0], counts[1], counts[2], longest, (System.nanoTime() - start) / 1e9);
+        return file;
+    }
+
+    /**
+     * @return the finished table of an endgame whose successors are all built
+     */
+    private byte[] build(Material material) throws IOException {
+        byte[] values = new byte[material.size];
+        tablebase.add(material, ByteBuffer.wrap(values));
+
+        int successorPlies = 0;
+        for(String successor : material.successors()) {
+            ByteBuffer table = tablebase.table(Material.parse(successor));
+            for(int i = 0; i < table.capacity(); i++) {
+                int code = table.get(i) & 0xFF;
+                if(code != Tablebase.ILLEGAL) {
+                    successorPlies = Math.max(successorPlies, code - 1);
+                }
+            }
+        }
+
+        runPass(material, values, 0);
+        int quietPasses = 0;
+        for(int pass = 1; pass <= MAX_PLIES; pass++) {
+            quietPasses = (runPass(material, values, pass) == 0) ? quietPasses + 1 : 0;
+            if(quietPasses >= 2 && pass > successorPlies + 1) {
+                break;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @return how many positions the pass decided
+     */
+    private int runPass(Material material, byte[] values, int pass) throws IOException {
+        int chunks = threads * CHUNKS_PER_THREAD;
+        int chunkSize = (values.length + chunks - 1) / chunks;
+        List<Future<Integer>> results = new ArrayList<>();
+        for(int start = 0; start < values.length; start += chunkSize) {
+            int from = start;
+            int to = Math.min(start + chunkSize, values.length);
+            results.add(workers.submit(() -> new Worker(material, values).run(from, to, pass)));
+        }
+
+        int decided = 0;
+        try {
+            for(Future<Integer> result : results) {
+                decided += result.get();
+            }
+        }
+        catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while building " + material.name, ex);
+        }
+        catch(ExecutionException ex) {
+            throw new IOException("Failed to build " + material.name, ex.getCause());
+        }
+        return decided;
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Works through a range of one table's positions with its own board
+     */
+    private final class Worker {
+
+        private final Material material;
+        private final byte[] values;
+        private final PieceType[] types;
+        private final TeamColor[] colors;
+        private final int[] squares;
+        private final int[] placed;
+        private int placedCount;
+        private final ChessBoard board = new ChessBoard();
+        private final ChessGame game = new ChessGame();
+        private final MoveList moves = new MoveList();
+
+        Worker(Material material, byte[] values) {
+            this.material = material;
+            this.values = values;
+            this.types = material.types();
+            this.colors = material.colors();
+            this.squares = new int[material.pieceCount];
+            this.placed = new int[material.pieceCount];
+            for(int square = 0; square < 64; square++) {
+                board.addPiece(Bitboards.position(square), null);
+            }
+        }
+
+        int run(int from, int to, int pass) {
+            int decided = 0;
+            for(int index = from; index < to; index++) {
+                int code = values[index] & 0xFF;
+                if(pass > 0 && code != Tablebase.DRAW) {
+                    continue;
+                }
+                if(!setUp(index)) {
+                    values[index] = (byte) Tablebase.ILLEGAL;
+                    continue;
+                }
+                game.legalMoves(moves);
+                int result = (pass == 0) ? firstPass() : (pass & 1) == 1 ? findWin(pass) : findLoss(pass);
+                if(result != Tablebase.DRAW) {
+                    values[index] = (byte) result;
+                    decided++;
+                }
+            }
+            return decided;
+        }
+
+        private int firstPass() {
+            return (moves.isEmpty() && game.isInCheck(game.getTeamTurn())) ? 1 : Tablebase.DRAW;
+        }
+
+        /**
+         * @return the code for winning in pass plies if a move reaches a
+         * position lost in one ply fewer
+         */
+        private int findWin(int pass) {
+            for(int i = 0; i < moves.size(); i++) {
+                if(childCode(moves.get(i)) == pass) {
+                    return pass + 1;
+                }
+            }
+            return Tablebase.DRAW;
+        }
+
+        /**
+         * @return the code for losing in pass plies if every move reaches a
+         * position already won
+         */
+        private int findLoss(int pass) {
+            if(moves.isEmpty()) {
+                return Tablebase.DRAW;
+            }
+            for(int i = 0; i < moves.size(); i++) {
+                int code = childCode(moves.get(i));
+                if(code == Tablebase.DRAW || code == Tablebase.UNKNOWN || code > pass || ((code - 1) & 1) == 0) {
+                    return Tablebase.DRAW;
+                }
+            }
+            return pass + 1;
+        }
+
+        private int childCode(int move) {
+            game.makeMove(move);
+            int code = tablebase.code(game.getBoard(), game.getTeamTurn());
+            game.unmakeMove();
+            return code;
+        }
+
+        /**
+         * Puts the position at an index on the board
+         *
+         * @return whether the position could occur in a game
+         */
+        private boolean setUp(int index) {
+            boolean strongToMove = material.squares(index, squares);
+            long used = 0L;
+            for(int i = 0; i < squares.length; i++) {
+                long bit = Bitboards.bit(squares[i]);
+                int row = Bitboards.row(squares[i]);
+                if((used & bit) != 0 || (types[i] == PieceType.PAWN && (row == 1 || row == 8))) {
+                    return false;
+                }
+                used |= bit;
+            }
+
+            for(int i = 0; i < placedCount; i++) {
+                board.addPiece(Bitboards.position(placed[i]), null);
+            }
+            for(int i = 0; i < squares.length; i++) {
+                board.addPiece(Bitboards.position(squares[i]), ChessPiece.of(colors[i], types[i]));
+                placed[i] = squares[i];
+            }
+            placedCount = squares.length;
+
+            TeamColor turn = strongToMove ? TeamColor.WHITE : TeamColor.BLACK;
+            game.setPosition(board, turn, 0, -1);
+            return !game.isInCheck(turn.opponent());
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package chess.engine;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size table of search results keyed by Zobrist hash
+ * <p>
+ * Entries live in one long array, two longs each: the key XOR the data,
+ * then the data, which packs the move, score, depth, bound and search
+ * generation into one long.
+ * Entries come in buckets of two. The first slot keeps the deepest result
+ * from the current search, and the second slot always takes the newest
+ * result, so deep results survive while recent ones are still found.
+ * <p>
+ * Search threads share the table without locks. A thread can read an
+ * entry while another is halfway through writing it, but then the two
+ * longs come from different writes, the XOR check fails and the entry is
+ * treated as missing.
+ */
+final class TranspositionTable {
+
+    static final int NONE = 0;
+    static final int EXACT = 1;
+    static final int LOWER = 2;
+    static final int UPPER = 3;
+
+    private static final int LONGS_PER_BUCKET = 4;
+    private static final int BYTES_PER_BUCKET = LONGS_PER_BUCKET * Long.BYTES;
+
+    private final long[] table;
+    private final int bucketMask;
+    private int generation;
+
+    /**
+     * @param megabytes the table size, rounded down to a power of two buckets
+     */
+    TranspositionTable(int megabytes) {
+        long buckets = Math.max(1L, megabytes * (1L << 20) / BYTES_PER_BUCKET);
+        int size = Integer.highestOneBit((int) Math.min(buckets, 1 << 28));
+        table = new long[size * LONGS_PER_BUCKET];
+        bucketMask = size - 1;
+    }
+
+    /**
+     * Marks a new search, so entries left by earlier searches are replaced
+     * before entries from this one
+     */
+    void newSearch() {
+        generation = (generation + 1) & 0x3F;
+    }
+
+    void clear() {
+        Arrays.fill(table, 0L);
+        generation = 0;
+    }
+
+    /**
+     * @return the packed data stored for a key, or 0 if there is none
+     */
+    long probe(long key) {
+        int index = bucketIndex(key);
+        for(int slot = index; slot < index + LONGS_PER_BUCKET; slot += 2) {
+            long data = table[slot + 1];
+            if(data != 0 && (table[slot] ^ data) == key) {
+                return data;
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * @return whether the bucket for a key holds any entry, which after a
+     * failed probe means other positions share it
+     */
+    boolean isOccupied(long key) {
+        int index = bucketIndex(key);
+        return table[index + 1] != 0 || table[index + 3] != 0;
+    }
+
+    /**
+     * Stores a search result, keeping the old best move if the new result
+     * for the same position has none
+     */
+    void store(long key, int move, int score, int depth, int bound) {
+        int index = bucketIndex(key);
+        long first = table[index + 1];
+        int slot;
+        if((table[index] ^ first) == key
+                || generation(first) != generation
+                || depth >= depth(first)) {
+            slot = index;
+        }
+        else {
+            slot = index + 2;
+        }
+
+        long old = table[slot + 1];
+        if(move == 0 && (table[slot] ^ old) == key) {
+            move = move(old);
+        }
+        long data = pack(move, score, depth, bound, generation);
+        table[slot] = key ^ data;
+        table[slot + 1] = data;
+    }
+
+    private int bucketIndex(long key) {
+        return (int) (key & bucketMask) * LONGS_PER_BUCKET;
+    }
+
+    private static long pack(int move, int score, int depth, int bound, int generation) {
+        return (move & 0x1FFFFL)
+                | ((score + 0x8000L) & 0xFFFFL) << 17
+                | (depth & 0xFFL) << 33
+                | (long) bound << 41
+                | (long) generation << 43;
+    }
+
+    static int move(long data) {
+        return (int) (data & 0x1FFFF);
+    }
+
+    static int score(long data) {
+        return (int) ((data >>> 17) & 0xFFFF) - 0x8000;
+    }
+
+    static int depth(long data) {
+        return (int) ((data >>> 33) & 0xFF);
+    }
+
+    static int bound(long data) {
+        return (int) ((data >>> 41) & 0x3);
+    }
+
+    private static int generation(long data) {
+        return (int) ((data >>> 43) & 0x3F);
+    }
+
+    /**
+     * Mate scores are stored as distance from the stored position rather
+     * than from the root, so they stay right when reached at another ply
+     */
+    static int scoreToTable(int score, int ply) {
+        if(score >= Score.MATE - Searcher.MAX_PLY) {
+            return score + ply;
+        }
+        if(score <= -Score.MATE + Searcher.MAX_PLY) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    static int scoreFromTable(int score, int ply) {
+        if(score >= Score.MATE - Searcher.MAX_PLY) {
+            return score - ply;
+        }
+        if(score <= -Score.MATE + Searcher.MAX_PLY) {
+            return score + ply;
+        }
+        return score;
+    }
+}
@@ -0,0 +1,73 @@
+package chess.engine;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Network arithmetic with SIMD vectors of the widest size the CPU has
+ * <p>
+ * This is the only class that uses jdk.incubator.vector. Accumulator
+ * updates work on 16 bit lanes. The output sum widens each vector of
+ * clipped values and weights into two vectors of 32 bit lanes, so the
+ * products cannot overflow. Lanes left over past the last whole vector
+ * are done one at a time.
+ */
+final class VectorNetworkMath implements NetworkMath {
+
+    private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+
+    @Override
+    public void add(short[] accumulator, short[] weights, int offset) {
+        int bound = SHORTS.loopBound(accumulator.length);
+        int i = 0;
+        for(; i < bound; i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, accumulator, i)
+                    .add(ShortVector.fromArray(SHORTS, weights, offset + i))
+                    .intoArray(accumulator, i);
+        }
+        for(; i < accumulator.length; i++) {
+            accumulator[i] += weights[offset + i];
+        }
+    }
+
+    @Override
+    public void subtract(short[] accumulator, short[] weights, int offset) {
+        int bound = SHORTS.loopBound(accumulator.length);
+        int i = 0;
+        for(; i < bound; i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, accumulator, i)
+                    .sub(ShortVector.fromArray(SHORTS, weights, offset + i))
+                    .intoArray(accumulator, i);
+        }
+        for(; i < accumulator.length; i++) {
+            accumulator[i] -= weights[offset + i];
+        }
+    }
+
+    @Override
+    public int activate(short[] accumulator, short[] weights, int offset) {
+        int bound = SHORTS.loopBound(accumulator.length);
+        IntVector sums = IntVector.zero(INTS);
+        int i = 0;
+        for(; i < bound; i += SHORTS.length()) {
+            ShortVector values = ShortVector.fromArray(SHORTS, accumulator, i)
+                    .max((short) 0)
+                    .min((short) Network.ACTIVATION_LIMIT);
+            ShortVector rowWeights = ShortVector.fromArray(SHORTS, weights, offset + i);
+            for(int part = 0; part < 2; part++) {
+                IntVector wideValues = (IntVector) values.convertShape(VectorOperators.S2I, INTS, part);
+                IntVector wideWeights = (IntVector) rowWeights.convertShape(VectorOperators.S2I, INTS, part);
+                sums = sums.add(wideValues.mul(wideWeights));
+            }
+        }
+        int sum = sums.reduceLanes(VectorOperators.ADD);
+        for(; i < accumulator.length; i++) {
+            int value = Math.min(Math.max(accumulator[i], 0), Network.ACTIVATION_LIMIT);
+            sum += value * weights[offset + i];
+        }
+        return sum;
+    }
+}
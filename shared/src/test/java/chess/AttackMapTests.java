@@ -0,0 +1,25 @@
+package chess;
+
+import chess.ChessGame.TeamColor;
+import org.junit.jupiter.api.*;
+
+public class AttackMapTests {
+
+    @Test
+    public void testAttackMapMatchesSquareQueries() {
+        for(String fen : new String[] {
+                Fen.START_POSITION,
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8"}) {
+            ChessBoard board = Fen.parse(fen).getBoard();
+            for(TeamColor color : TeamColor.values()) {
+                long map = board.getAttackMap(color);
+                for(int square = 0; square < 64; square++) {
+                    Assertions.assertEquals(board.isSquareAttacked(Bitboards.position(square), color),
+                            (map & Bitboards.bit(square)) != 0, Fen.squareName(square) + " by " + color + " in " + fen);
+                }
+            }
+        }
+    }
+}
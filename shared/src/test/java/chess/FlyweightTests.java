@@ -0,0 +1,42 @@
+package chess;
+
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece.PieceType;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.*;
+
+public class FlyweightTests {
+
+    @Test
+    public void testSharedInstances() {
+        Assertions.assertSame(ChessPosition.of(4, 5), ChessPosition.of(4, 5));
+        Assertions.assertEquals(new ChessPosition(4, 5), ChessPosition.of(4, 5));
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+        Assertions.assertSame(ChessPiece.of(TeamColor.BLACK, PieceType.KNIGHT), board.getPiece(ChessPosition.of(8, 2)));
+    }
+
+    @Test
+    public void testOffBoardPosition() {
+        ChessPosition position = ChessPosition.of(0, 9);
+        Assertions.assertEquals(0, position.getRow());
+        Assertions.assertEquals(9, position.getColumn());
+    }
+
+    @Test
+    public void testGsonUsesSharedInstances() {
+        Gson gson = new Gson();
+        ChessMove move = new ChessMove(new ChessPosition(7, 1), new ChessPosition(8, 1), PieceType.QUEEN);
+        String json = gson.toJson(move);
+        Assertions.assertEquals("{\"startPosition\":{\"row\":7,\"col\":1},\"endPosition\":{\"row\":8,\"col\":1},"
+                + "\"promotionPiece\":\"QUEEN\"}", json);
+
+        ChessMove read = gson.fromJson(json, ChessMove.class);
+        Assertions.assertEquals(move, read);
+        Assertions.assertSame(ChessPosition.of(7, 1), read.getStartPosition());
+        Assertions.assertSame(ChessPosition.of(8, 1), read.getEndPosition());
+
+        ChessPiece piece = gson.fromJson(gson.toJson(new ChessPiece(TeamColor.WHITE, PieceType.ROOK)), ChessPiece.class);
+        Assertions.assertSame(ChessPiece.of(TeamColor.WHITE, PieceType.ROOK), piece);
+    }
+}
@@ -0,0 +1,43 @@
+package chess;
+
+import chess.ChessGame.GameStatus;
+import chess.ChessGame.TeamColor;
+import org.junit.jupiter.api.*;
+
+public class GameStatusTests {
+
+    @Test
+    public void testStatuses() {
+        Assertions.assertEquals(GameStatus.ONGOING, new ChessGame().getGameStatus());
+        Assertions.assertEquals(GameStatus.CHECK,
+                Fen.parse("4k3/8/8/8/8/8/8/4K2r w - - 0 1").getGameStatus());
+        Assertions.assertEquals(GameStatus.CHECKMATE,
+                Fen.parse("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3").getGameStatus());
+        Assertions.assertEquals(GameStatus.STALEMATE,
+                Fen.parse("k7/8/1Q6/8/8/8/8/7K b - - 0 1").getGameStatus());
+    }
+
+    @Test
+    public void testStatusFollowsMoves() throws InvalidMoveException {
+        ChessGame game = Fen.parse("k7/8/8/1Q6/8/8/8/7K w - - 0 1");
+        Assertions.assertEquals(GameStatus.ONGOING, game.getGameStatus());
+
+        game.makeMove(new ChessMove(ChessPosition.of(5, 2), ChessPosition.of(6, 2), null));
+        Assertions.assertEquals(GameStatus.STALEMATE, game.getGameStatus());
+        Assertions.assertTrue(game.isInStalemate(TeamColor.BLACK));
+
+        game.unmakeMove();
+        Assertions.assertEquals(GameStatus.ONGOING, game.getGameStatus());
+        Assertions.assertFalse(game.isInStalemate(TeamColor.BLACK));
+    }
+
+    @Test
+    public void testStatusFollowsSetBoard() {
+        ChessGame game = new ChessGame();
+        Assertions.assertEquals(GameStatus.ONGOING, game.getGameStatus());
+
+        game.setBoard(Fen.parse("k7/8/1Q6/8/8/8/8/7K b - - 0 1").getBoard());
+        game.setTeamTurn(TeamColor.BLACK);
+        Assertions.assertEquals(GameStatus.STALEMATE, game.getGameStatus());
+    }
+}
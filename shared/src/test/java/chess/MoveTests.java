@@ -0,0 +1,82 @@
+package chess;
+
+import chess.ChessPiece.PieceType;
+import org.junit.jupiter.api.*;
+
+public class MoveTests {
+
+    @Test
+    public void testPackedFields() {
+        int move = Move.promotion(Fen.parseSquare("e7"), Fen.parseSquare("e8"), PieceType.KNIGHT);
+        Assertions.assertEquals(Fen.parseSquare("e7"), Move.from(move));
+        Assertions.assertEquals(Fen.parseSquare("e8"), Move.to(move));
+        Assertions.assertEquals(PieceType.KNIGHT, Move.promotion(move));
+        Assertions.assertEquals(Move.NORMAL, Move.flag(move));
+        Assertions.assertEquals("e7e8n", Move.toString(move));
+
+        ChessMove chessMove = Move.toChessMove(move);
+        Assertions.assertEquals(new ChessMove(new ChessPosition(7, 5), new ChessPosition(8, 5), PieceType.KNIGHT),
+                chessMove);
+        Assertions.assertTrue(Move.matches(move, chessMove));
+    }
+
+    @Test
+    public void testMakeAndUnmakePackedMoves() {
+        ChessGame game = Fen.parse("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        String fen = Fen.write(game);
+        MoveList moves = new MoveList();
+        game.legalMoves(moves);
+        Assertions.assertEquals(48, moves.size());
+
+        for(int i = 0; i < moves.size(); i++) {
+            game.makeMove(moves.get(i));
+            Assertions.assertEquals(moves.get(i), game.lastMove());
+            game.unmakeMove();
+            Assertions.assertEquals(fen, Fen.write(game));
+        }
+        Assertions.assertEquals(Move.NONE, game.lastMove());
+    }
+
+    @Test
+    public void testCastlingNeedsRook() {
+        //A knight stands where the kingside rook should be, and the queenside rook is gone
+        ChessGame game = Fen.parse("4k3/8/8/8/8/8/8/4K2N w KQ - 0 1");
+        Assertions.assertEquals(0, game.getCastlingRights());
+
+        ChessBoard board = game.getBoard();
+        MoveList moves = new MoveList();
+        MoveGenerator.legalMoves(board, ChessGame.TeamColor.WHITE, ChessGame.ALL_CASTLING, -1, ~0L, moves);
+        for(int i = 0; i < moves.size(); i++) {
+            Assertions.assertNotEquals(Move.CASTLE, Move.flag(moves.get(i)), Move.toString(moves.get(i)));
+        }
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> game.makeMove(Move.of(Fen.parseSquare("e1"), Fen.parseSquare("g1"), Move.CASTLE)));
+
+        //A black rook on a white rook's square gives no right either
+        Assertions.assertEquals(ChessGame.WHITE_KINGSIDE,
+                Fen.parse("4k3/8/8/8/8/8/8/r3K2R w KQ - 0 1").getCastlingRights());
+    }
+
+    @Test
+    public void testNoisyAndQuietMovesSplitLegalMoves() {
+        for(Perft.Position position : Perft.SUITE) {
+            ChessGame game = Fen.parse(position.fen());
+            MoveList all = new MoveList();
+            MoveList noisy = new MoveList();
+            MoveList quiet = new MoveList();
+            game.legalMoves(all);
+            game.noisyMoves(noisy);
+            game.quietMoves(quiet);
+
+            Assertions.assertEquals(all.size(), noisy.size() + quiet.size(), position.name());
+            for(int i = 0; i < all.size(); i++) {
+                int move = all.get(i);
+                boolean isNoisy = Move.isPromotion(move) || Move.flag(move) == Move.EN_PASSANT
+                        || game.getBoard().pieceAt(Move.to(move)) >= 0;
+                Assertions.assertEquals(isNoisy, noisy.contains(move), position.name() + " " + Move.toString(move));
+                Assertions.assertEquals(!isNoisy, quiet.contains(move), position.name() + " " + Move.toString(move));
+                Assertions.assertTrue(game.isLegal(move, new MoveList()));
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+public class PerftTests {
+
+    private static final long MAX_NODES = 250_000L;
+
+    @Test
+    public void testSuite() {
+        for(Perft.Position position : Perft.SUITE) {
+            ChessGame game = Fen.parse(position.fen());
+            for(int depth = 1; depth <= position.counts().length; depth++) {
+                long expected = position.counts()[depth - 1];
+                if(expected > MAX_NODES) {
+                    break;
+                }
+                Assertions.assertEquals(expected, game.perft(depth), position.name() + " at depth " + depth);
+            }
+        }
+    }
+
+    @Test
+    public void testPerftLeavesGameUnchanged() {
+        ChessGame game = Fen.parse(Perft.SUITE.get(1).fen());
+        ChessGame copy = new ChessGame(game);
+
+        game.perft(3);
+
+        Assertions.assertEquals(copy, game);
+        Assertions.assertEquals(copy.zobristKey(), game.zobristKey());
+    }
+
+    @Test
+    public void testParallelDivideWithHash() {
+        ChessGame game = Fen.parse(Perft.SUITE.get(1).fen());
+        long nodes = 0;
+        for(long count : Perft.divide(game, 3, 4, 16).values()) {
+            nodes += count;
+        }
+
+        Assertions.assertEquals(97862L, nodes);
+        Assertions.assertEquals(48, game.divide(3).size());
+    }
+
+    @Test
+    public void testFenRoundTrip() {
+        for(Perft.Position position : Perft.SUITE) {
+            String fen = Fen.write(Fen.parse(position.fen()));
+            Assertions.assertEquals(Fen.parse(position.fen()), Fen.parse(fen), position.name());
+        }
+        Assertions.assertEquals(Fen.START_POSITION, Fen.write(new ChessGame()));
+    }
+
+    @Test
+    public void testFenFail() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Fen.parse("rnbqkbnr/pppppppp"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Fen.parse("8/8/8/8/8/8/8/8 x - - 0 1"));
+    }
+}
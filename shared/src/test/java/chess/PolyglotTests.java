@@ -0,0 +1,57 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+public class PolyglotTests {
+
+    /**
+     * Plays the moves from the starting position and checks the key
+     * published with the Polyglot book format after each
+     */
+    private static void assertKeys(String[] sans, long[] keys) {
+        ChessGame game = Fen.parse(Fen.START_POSITION);
+        for(int i = 0; i < sans.length; i++) {
+            game.makeMove(San.parse(game, sans[i]));
+            Assertions.assertEquals(keys[i], game.polyglotKey(), sans[i]);
+        }
+    }
+
+    @Test
+    public void testStartPositionKey() {
+        Assertions.assertEquals(0x463B96181691FC9CL, Fen.parse(Fen.START_POSITION).polyglotKey());
+        Assertions.assertEquals(0x463B96181691FC9CL, new ChessGame().polyglotKey());
+    }
+
+    @Test
+    public void testKeysAlongKingWalk() {
+        assertKeys(new String[] {"e4", "d5", "e5", "f5", "Ke2", "Kf7"}, new long[] {
+                0x823C9B50FD114196L, 0x0756B94461C50FB0L, 0x662FAFB965DB29D4L,
+                0x22A48B5A8E47FF78L, 0x652A607CA3F242C1L, 0x00FDD303C946BDD9L});
+    }
+
+    @Test
+    public void testKeysWithEnPassantAndLostCastling() {
+        ChessGame game = Fen.parse(Fen.START_POSITION);
+        for(String san : new String[] {"a4", "b5", "h4", "b4", "c4"}) {
+            game.makeMove(San.parse(game, san));
+        }
+        Assertions.assertEquals(0x3C8123EA7B067637L, game.polyglotKey());
+
+        game.makeMove(San.parse(game, "bxc3"));
+        game.makeMove(San.parse(game, "Ra3"));
+        Assertions.assertEquals(0x5C3F9B829B279560L, game.polyglotKey());
+    }
+
+    @Test
+    public void testKeyMatchesFen() {
+        //The en passant square counts only when a pawn can take onto it
+        ChessGame played = Fen.parse(Fen.START_POSITION);
+        for(String san : new String[] {"e4", "d5", "e5", "f5"}) {
+            played.makeMove(San.parse(played, san));
+        }
+        Assertions.assertEquals(Fen.parse("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3").polyglotKey(),
+                played.polyglotKey());
+        Assertions.assertEquals(0x823C9B50FD114196L,
+                Fen.parse("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1").polyglotKey());
+    }
+}
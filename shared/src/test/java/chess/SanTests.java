@@ -0,0 +1,36 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+public class SanTests {
+
+    @Test
+    public void testPawnAndPieceMoves() {
+        ChessGame game = Fen.parse(Fen.START_POSITION);
+        Assertions.assertEquals("e2e4", Move.toString(San.parse(game, "e4")));
+        Assertions.assertEquals("g1f3", Move.toString(San.parse(game, "Nf3+")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> San.parse(game, "e5"));
+    }
+
+    @Test
+    public void testDisambiguation() {
+        ChessGame game = Fen.parse("4k3/8/8/8/8/8/4K3/R6R w - - 0 1");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> San.parse(game, "Rd1"));
+        Assertions.assertEquals("a1d1", Move.toString(San.parse(game, "Rad1")));
+        Assertions.assertEquals("h1d1", Move.toString(San.parse(game, "Rhd1")));
+    }
+
+    @Test
+    public void testSpecialMoves() {
+        ChessGame castles = Fen.parse("r3k2r/8/8/8/8/8/8/R3K2R b KQkq - 0 1");
+        Assertions.assertEquals(Move.CASTLE, Move.flag(San.parse(castles, "O-O-O")));
+        Assertions.assertEquals("e8g8", Move.toString(San.parse(castles, "O-O")));
+
+        ChessGame promotion = Fen.parse("1n2k3/P7/8/8/8/8/8/4K3 w - - 0 1");
+        Assertions.assertEquals("a7b8n", Move.toString(San.parse(promotion, "axb8=N")));
+        Assertions.assertEquals("a7a8q", Move.toString(San.parse(promotion, "a8Q#")));
+
+        ChessGame enPassant = Fen.parse("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1");
+        Assertions.assertEquals(Move.EN_PASSANT, Move.flag(San.parse(enPassant, "exd6")));
+    }
+}
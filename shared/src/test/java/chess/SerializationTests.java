@@ -0,0 +1,141 @@
+package chess;
+
+import chess.ChessGame.TeamColor;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.*;
+
+public class SerializationTests {
+
+    private static final String START_PLACEMENT = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR";
+
+    private final Gson gson = new Gson();
+
+    @Test
+    public void testBoardRoundTrip() {
+        ChessGame game = Fen.parse("r3k2r/ppp2ppp/2n5/3qp3/4P3/2N5/PPP2PPP/R2QK2R b KQkq - 0 1");
+        ChessBoard board = gson.fromJson(gson.toJson(game.getBoard()), ChessBoard.class);
+        Assertions.assertEquals(game.getBoard(), board);
+        Assertions.assertEquals(game.getBoard().getKey(), board.getKey());
+        Assertions.assertEquals(game.getBoard().getPawnKey(), board.getPawnKey());
+    }
+
+    @Test
+    public void testBoardWritesPlacement() {
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+        Assertions.assertEquals("{\"placement\":\"" + START_PLACEMENT + "\"}", gson.toJson(board));
+    }
+
+    @Test
+    public void testGameFitsSavedColumn() {
+        //Games are saved in a VARCHAR(2048) column
+        String json = gson.toJson(new ChessGame());
+        Assertions.assertTrue(json.length() < 256, json);
+        Assertions.assertFalse(json.contains("key"), json);
+        Assertions.assertFalse(json.contains("phase"), json);
+    }
+
+    @Test
+    public void testReadsLegacySquares() {
+        ChessBoard board = gson.fromJson("{\"squares\":" + legacySquares(START_PLACEMENT) + "}", ChessBoard.class);
+        ChessBoard expected = new ChessBoard();
+        expected.resetBoard();
+        Assertions.assertEquals(expected, board);
+        Assertions.assertEquals(expected.getKey(), board.getKey());
+        Assertions.assertEquals(expected.getPhase(), board.getPhase());
+
+        ChessGame game = gson.fromJson("{\"teamTurn\":\"WHITE\",\"gameBoard\":{\"squares\":"
+                + legacySquares(START_PLACEMENT) + "}}", ChessGame.class);
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING, game.getGameStatus());
+        Assertions.assertEquals(20, game.legalMoves(TeamColor.WHITE).size());
+    }
+
+    @Test
+    public void testGameRoundTrip() {
+        ChessGame game = Fen.parse("rnbqkbnr/1pp1pppp/p7/3pP3/8/8/PPPP1PPP/RNBQK2R w Qkq d6 0 1");
+        ChessGame read = gson.fromJson(gson.toJson(game), ChessGame.class);
+        Assertions.assertEquals(game, read);
+        Assertions.assertEquals(game.zobristKey(), read.zobristKey());
+    }
+
+    @Test
+    public void testReadsLegacyCastlerAndEnPassanter() {
+        //Saved by the original game after 1. e4 a6 2. e5 d5
+        String json = "{\"teamTurn\":\"WHITE\",\"gameBoard\":{\"squares\":"
+                + legacySquares("rnbqkbnr/1pp1pppp/p7/3pP3/8/8/PPPP1PPP/RNBQKBNR") + "},"
+                + "\"castler\":{\"whiteKingHasMoved\":false,\"blackKingHasMoved\":false,"
+                + "\"whiteLeftRookHasMoved\":false,\"whiteRightRookHasMoved\":false,"
+                + "\"blackLeftRookHasMoved\":false,\"blackRightRookHasMoved\":false},"
+                + "\"enPassanter\":{\"enPassantLeft\":{\"startPosition\":{\"row\":5,\"col\":5},"
+                + "\"endPosition\":{\"row\":6,\"col\":4}}}}";
+        ChessGame game = gson.fromJson(json, ChessGame.class);
+        Assertions.assertEquals(ChessGame.ALL_CASTLING, game.getCastlingRights());
+        Assertions.assertEquals(ChessPosition.of(6, 4), game.getEnPassantPosition());
+        Assertions.assertEquals(Fen.parse("rnbqkbnr/1pp1pppp/p7/3pP3/8/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 1"), game);
+
+        //Saved after 1. e4 e5 2. Ke2 Nf6 3. Ke1, with the king back home
+        json = "{\"teamTurn\":\"BLACK\",\"gameBoard\":{\"squares\":"
+                + legacySquares("rnbqkb1r/pppp1ppp/5n2/4p3/4P3/8/PPPP1PPP/RNBQKBNR") + "},"
+                + "\"castler\":{\"whiteKingHasMoved\":true,\"blackKingHasMoved\":false,"
+                + "\"whiteLeftRookHasMoved\":false,\"whiteRightRookHasMoved\":false,"
+                + "\"blackLeftRookHasMoved\":false,\"blackRightRookHasMoved\":false},\"enPassanter\":{}}";
+        game = gson.fromJson(json, ChessGame.class);
+        Assertions.assertEquals(ChessGame.BLACK_KINGSIDE | ChessGame.BLACK_QUEENSIDE, game.getCastlingRights());
+        Assertions.assertNull(game.getEnPassantPosition());
+    }
+
+    @Test
+    public void testDerivesMissingCastlingRights() {
+        String json = "{\"teamTurn\":\"WHITE\",\"gameBoard\":{\"placement\":\"r3k3/8/8/8/8/8/8/4K2R\"}}";
+        ChessGame game = gson.fromJson(json, ChessGame.class);
+        Assertions.assertEquals(ChessGame.WHITE_KINGSIDE | ChessGame.BLACK_QUEENSIDE, game.getCastlingRights());
+    }
+
+    @Test
+    public void testDropsRightsWithoutRook() {
+        String json = "{\"teamTurn\":\"WHITE\",\"gameBoard\":{\"placement\":\"r3k3/8/8/8/8/8/8/4K2R\"},"
+                + "\"castlingRights\":15,\"enPassantSquare\":-1}";
+        ChessGame game = gson.fromJson(json, ChessGame.class);
+        Assertions.assertEquals(ChessGame.WHITE_KINGSIDE | ChessGame.BLACK_QUEENSIDE, game.getCastlingRights());
+
+        //A legacy save whose castler never saw the rook taken
+        json = "{\"teamTurn\":\"WHITE\",\"gameBoard\":{\"squares\":"
+                + legacySquares("rnbqkbn1/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR") + "},"
+                + "\"castler\":{\"whiteKingHasMoved\":false,\"blackKingHasMoved\":false,"
+                + "\"whiteLeftRookHasMoved\":false,\"whiteRightRookHasMoved\":false,"
+                + "\"blackLeftRookHasMoved\":false,\"blackRightRookHasMoved\":false},\"enPassanter\":{}}";
+        game = gson.fromJson(json, ChessGame.class);
+        Assertions.assertEquals(ChessGame.ALL_CASTLING & ~ChessGame.BLACK_KINGSIDE, game.getCastlingRights());
+    }
+
+    @Test
+    public void testReadsBitboards() {
+        ChessBoard expected = new ChessBoard();
+        expected.resetBoard();
+        String json = "{\"pieces\":" + gson.toJson(expected.pieces) + ",\"colors\":[0,0],\"occupied\":0}";
+        ChessBoard board = gson.fromJson(json, ChessBoard.class);
+        Assertions.assertEquals(expected, board);
+        Assertions.assertEquals(expected.getOccupancy(), board.getOccupancy());
+        Assertions.assertEquals(expected.getKey(), board.getKey());
+    }
+
+    /**
+     * @return a placement in the square array layout the original board
+     * was saved in, first row first, with null for an empty square
+     */
+    static String legacySquares(String placement) {
+        ChessBoard board = Fen.parsePlacement(placement);
+        StringBuilder json = new StringBuilder("[");
+        for(int row = 1; row <= 8; row++) {
+            json.append(row > 1 ? ",[" : "[");
+            for(int col = 1; col <= 8; col++) {
+                ChessPiece piece = board.getPiece(ChessPosition.of(row, col));
+                json.append(col > 1 ? "," : "");
+                json.append(piece == null ? "null" : "{\"pieceColor\":\"" + piece.getTeamColor()
+                        + "\",\"type\":\"" + piece.getPieceType() + "\"}");
+            }
+            json.append(']');
+        }
+        return json.append(']').toString();
+    }
+}
@@ -0,0 +1,69 @@
+package chess;
+
+import chess.ChessGame.TeamColor;
+import org.junit.jupiter.api.*;
+
+public class StaticExchangeTests {
+
+    private static int see(String fen, String from, String to) {
+        ChessGame game = Fen.parse(fen);
+        return StaticExchange.see(game.getBoard(), Move.of(Fen.parseSquare(from), Fen.parseSquare(to)));
+    }
+
+    @Test
+    public void testUndefendedPiece() {
+        Assertions.assertEquals(100, see("1k1r4/1pp4p/p7/4p3/8/P5P1/1PP4P/2K1R3 w - - 0 1", "e1", "e5"));
+    }
+
+    @Test
+    public void testDefendedPawn() {
+        Assertions.assertEquals(-800, see("4k3/8/4p3/3p4/8/8/8/3QK3 w - - 0 1", "d1", "d5"));
+        Assertions.assertEquals(100, see("4k3/8/4p3/3p4/4P3/8/8/3QK3 w - - 0 1", "e4", "d5"));
+    }
+
+    @Test
+    public void testXrayBatteryJoinsIn() {
+        //Rooks doubled on the d-file win the pawn guarded by one rook
+        Assertions.assertEquals(100, see("3rk3/8/8/3p4/8/8/3R4/3RK3 w - - 0 1", "d2", "d5"));
+        //Without the rook behind, the exchange loses the rook for a pawn
+        Assertions.assertEquals(-400, see("3rk3/8/8/3p4/8/8/3R4/4K3 w - - 0 1", "d2", "d5"));
+    }
+
+    @Test
+    public void testKingCannotRecaptureDefendedSquare() {
+        Assertions.assertEquals(0, see("8/8/8/3k4/4b3/8/8/1B2K3 w - - 0 1", "b1", "e4"));
+        Assertions.assertEquals(330, see("8/8/8/3k4/4b1R1/8/8/1B2K3 w - - 0 1", "b1", "e4"));
+    }
+
+    @Test
+    public void testSeeAtLeastAgreesWithSee() {
+        String[] fens = {
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                "3rk3/8/8/3p4/8/8/3R4/3RK3 w - - 0 1",
+                "8/8/8/3k4/4b1R1/8/8/1B2K3 w - - 0 1",
+                "8/8/8/2k5/2pP4/8/B7/4K3 b - d3 0 1"};
+        MoveList moves = new MoveList();
+        for(String fen : fens) {
+            ChessGame game = Fen.parse(fen);
+            game.legalMoves(moves);
+            for(int i = 0; i < moves.size(); i++) {
+                int move = moves.get(i);
+                int see = StaticExchange.see(game.getBoard(), move);
+                for(int threshold = -1000; threshold <= 1000; threshold += 10) {
+                    Assertions.assertEquals(see >= threshold,
+                            StaticExchange.seeAtLeast(game.getBoard(), move, threshold),
+                            Move.toString(move) + " at " + threshold + " in " + fen);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testHangingPieces() {
+        ChessBoard board = Fen.parse("4k3/8/4p3/3p4/4B3/8/8/4K3 w - - 0 1").getBoard();
+        Assertions.assertEquals(0L, StaticExchange.hangingPieces(board, TeamColor.BLACK));
+        Assertions.assertEquals(Bitboards.bit(Fen.parseSquare("e4")), StaticExchange.hangingPieces(board, TeamColor.WHITE));
+    }
+}
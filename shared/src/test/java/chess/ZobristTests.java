@@ -0,0 +1,96 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+public class ZobristTests {
+
+    private static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+        return new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), null);
+    }
+
+    @Test
+    public void testKeyRestoredByUnmake() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        long startKey = game.zobristKey();
+
+        game.makeMove(move(2, 5, 4, 5));
+        Assertions.assertNotEquals(startKey, game.zobristKey());
+
+        game.unmakeMove();
+        Assertions.assertEquals(startKey, game.zobristKey());
+    }
+
+    @Test
+    public void testTranspositionsShareKey() throws InvalidMoveException {
+        ChessGame first = new ChessGame();
+        first.makeMove(move(1, 7, 3, 6));
+        first.makeMove(move(8, 7, 6, 6));
+        first.makeMove(move(1, 2, 3, 3));
+
+        ChessGame second = new ChessGame();
+        second.makeMove(move(1, 2, 3, 3));
+        second.makeMove(move(8, 7, 6, 6));
+        second.makeMove(move(1, 7, 3, 6));
+
+        Assertions.assertEquals(first, second);
+        Assertions.assertEquals(first.zobristKey(), second.zobristKey());
+    }
+
+    @Test
+    public void testKeyIncludesCastlingRights() throws InvalidMoveException {
+        ChessGame moved = new ChessGame();
+        moved.makeMove(move(1, 7, 3, 6));
+        moved.makeMove(move(8, 7, 6, 6));
+        moved.makeMove(move(1, 8, 1, 7));
+        moved.makeMove(move(8, 8, 8, 7));
+        moved.makeMove(move(1, 7, 1, 8));
+        moved.makeMove(move(8, 7, 8, 8));
+        moved.makeMove(move(3, 6, 1, 7));
+        moved.makeMove(move(6, 6, 8, 7));
+
+        ChessGame fresh = new ChessGame();
+        Assertions.assertEquals(fresh.getBoard(), moved.getBoard());
+        Assertions.assertNotEquals(fresh.zobristKey(), moved.zobristKey());
+    }
+
+    @Test
+    public void testKeyIncludesEnPassant() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5));
+        game.makeMove(move(7, 1, 6, 1));
+        game.makeMove(move(4, 5, 5, 5));
+        game.makeMove(move(7, 4, 5, 4));
+        Assertions.assertNotNull(game.getEnPassantPosition());
+
+        ChessGame copy = new ChessGame(game);
+        long keyWithEnPassant = copy.zobristKey();
+        copy.makeMove(move(1, 7, 3, 6));
+        copy.makeMove(move(8, 7, 6, 6));
+        copy.makeMove(move(3, 6, 1, 7));
+        copy.makeMove(move(6, 6, 8, 7));
+
+        Assertions.assertEquals(game.getBoard(), copy.getBoard());
+        Assertions.assertNotEquals(keyWithEnPassant, copy.zobristKey());
+    }
+
+    @Test
+    public void testNullMoveRestoredByUnmake() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5));
+        game.makeMove(move(7, 1, 6, 1));
+        game.makeMove(move(4, 5, 5, 5));
+        game.makeMove(move(7, 4, 5, 4));
+        long key = game.zobristKey();
+        Assertions.assertNotNull(game.getEnPassantPosition());
+
+        game.makeNullMove();
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, game.getTeamTurn());
+        Assertions.assertNull(game.getEnPassantPosition());
+        Assertions.assertNotEquals(key, game.zobristKey());
+
+        game.unmakeMove();
+        Assertions.assertEquals(ChessGame.TeamColor.WHITE, game.getTeamTurn());
+        Assertions.assertNotNull(game.getEnPassantPosition());
+        Assertions.assertEquals(key, game.zobristKey());
+    }
+}
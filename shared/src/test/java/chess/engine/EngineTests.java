@@ -0,0 +1,252 @@
+package chess.engine;
+
+import chess.Fen;
+import chess.Move;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+public class EngineTests {
+
+    @Test
+    public void testFindsMateInOne() {
+        SearchResult result = new Engine().search(Fen.parse("6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1"),
+                SearchLimits.depth(3)).join();
+        Assertions.assertEquals("d1d8", Move.toString(result.bestMove()));
+        Assertions.assertTrue(result.isMate());
+        Assertions.assertEquals(Score.MATE - 1, result.score());
+    }
+
+    @Test
+    public void testTakesHangingQueen() {
+        SearchResult result = new Engine().search(Fen.parse("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1"),
+                SearchLimits.depth(2)).join();
+        Assertions.assertEquals("d2d5", Move.toString(result.bestMove()));
+        Assertions.assertEquals("d2d5", result.pvString().split(" ")[0]);
+    }
+
+    @Test
+    public void testQuiescenceSeesRecapture() {
+        //Taking the pawn on d5 wins a pawn at depth 1, but exd5 wins the queen back
+        SearchResult result = new Engine().search(Fen.parse("4k3/8/4p3/3p4/8/8/8/3QK3 w - - 0 1"),
+                SearchLimits.depth(1)).join();
+        Assertions.assertNotEquals("d1d5", Move.toString(result.bestMove()));
+        Assertions.assertTrue(result.score() > 500, "scored " + result.score());
+    }
+
+    @Test
+    public void testNoMoveWhenStalemated() {
+        SearchResult result = new Engine().search(Fen.parse("k7/8/1Q6/8/8/8/8/7K b - - 0 1"),
+                SearchLimits.depth(3)).join();
+        Assertions.assertEquals(Move.NONE, result.bestMove());
+        Assertions.assertNull(result.bestChessMove());
+        Assertions.assertEquals(0, result.score());
+    }
+
+    @Test
+    public void testStopsAtNodeLimit() {
+        SearchResult result = new Engine().search(Fen.parse(Fen.START_POSITION), SearchLimits.nodes(20_000)).join();
+        Assertions.assertNotEquals(Move.NONE, result.bestMove());
+        Assertions.assertTrue(result.depth() >= 1);
+        Assertions.assertTrue(result.nodes() < 20_000 + 1024, "searched " + result.nodes() + " nodes");
+    }
+
+    @Test
+    public void testStopsAtMoveTime() {
+        long start = System.nanoTime();
+        SearchResult result = new Engine().search(Fen.parse(Fen.START_POSITION), SearchLimits.moveTime(100)).join();
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        Assertions.assertNotEquals(Move.NONE, result.bestMove());
+        Assertions.assertTrue(millis < 1000, "searched for " + millis + " ms");
+    }
+
+    @Test
+    public void testLazySmpFindsSameMate() {
+        Engine engine = new Engine(4, 4);
+        SearchResult result = engine.search(Fen.parse("6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1"),
+                SearchLimits.depth(4)).join();
+        Assertions.assertEquals("d1d8", Move.toString(result.bestMove()));
+        Assertions.assertEquals(Score.MATE - 1, result.score());
+    }
+
+    @Test
+    public void testLazySmpStopsAtMoveTime() {
+        Engine engine = new Engine(4, 3);
+        long start = System.nanoTime();
+        SearchResult result = engine.search(Fen.parse(Fen.START_POSITION), SearchLimits.moveTime(100)).join();
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        Assertions.assertNotEquals(Move.NONE, result.bestMove());
+        Assertions.assertTrue(millis < 1000, "searched for " + millis + " ms");
+    }
+
+    @Test
+    public void testFindsMateWithEachFeatureOff() {
+        for(SearchFeature feature : SearchFeature.values()) {
+            Engine engine = new Engine(4);
+            engine.setFeatures(EnumSet.complementOf(EnumSet.of(feature)));
+            SearchResult result = engine.search(Fen.parse("6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1"),
+                    SearchLimits.depth(4)).join();
+            Assertions.assertEquals("d1d8", Move.toString(result.bestMove()), "without " + feature);
+            Assertions.assertEquals(Score.MATE - 1, result.score(), "without " + feature);
+        }
+    }
+
+    @Test
+    public void testFeaturesSearchFewerNodes() {
+        Engine engine = new Engine(4);
+        engine.setFeatures(EnumSet.noneOf(SearchFeature.class));
+        long fullWidth = engine.search(Fen.parse(Bench.POSITIONS.get(1)), SearchLimits.depth(5)).join().nodes();
+
+        engine.clearHash();
+        engine.setFeatures(EnumSet.allOf(SearchFeature.class));
+        long selective = engine.search(Fen.parse(Bench.POSITIONS.get(1)), SearchLimits.depth(5)).join().nodes();
+        Assertions.assertTrue(selective < fullWidth, selective + " nodes against " + fullWidth);
+    }
+
+    @Test
+    public void testStatsCountSearch() {
+        SearchResult result = new Engine(4).search(Fen.parse(Bench.POSITIONS.get(1)), SearchLimits.depth(5)).join();
+        SearchStats stats = result.stats();
+        Assertions.assertEquals(5, stats.iterationNodes().length);
+        Assertions.assertEquals(5, stats.iterationNanos().length);
+        Assertions.assertTrue(stats.quiescenceNodes() > 0 && stats.quiescenceNodes() < stats.nodes());
+        Assertions.assertTrue(stats.tableHits() > 0 && stats.tableHits() <= stats.tableProbes());
+        Assertions.assertTrue(stats.firstMoveCutoffs() > 0 && stats.firstMoveCutoffs() <= stats.cutoffs());
+        Assertions.assertTrue(stats.effectiveBranchingFactor() > 1, "ebf " + stats.effectiveBranchingFactor());
+        Assertions.assertTrue(Arrays.stream(stats.iterationNodes()).sum() <= stats.nodes());
+    }
+
+    @Test
+    public void testInfoAfterEachIteration() {
+        Engine engine = new Engine(4);
+        List<SearchResult> infos = new ArrayList<>();
+        engine.setInfoListener(infos::add);
+        SearchResult result = engine.search(Fen.parse(Fen.START_POSITION), SearchLimits.depth(4)).join();
+
+        Assertions.assertEquals(4, infos.size());
+        for(int i = 0; i < infos.size(); i++) {
+            Assertions.assertEquals(i + 1, infos.get(i).depth());
+            Assertions.assertNotEquals(Move.NONE, infos.get(i).bestMove());
+        }
+        Assertions.assertEquals(result.bestMove(), infos.get(3).bestMove());
+    }
+
+    @Test
+    public void testStopReturnsBestMoveSoFar() throws InterruptedException {
+        Engine engine = new Engine(4);
+        CompletableFuture<SearchResult> future = engine.search(Fen.parse(Fen.START_POSITION), SearchLimits.infinite());
+        Thread.sleep(200);
+        Assertions.assertFalse(future.isDone());
+
+        long start = System.nanoTime();
+        SearchResult result = engine.stop();
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        Assertions.assertTrue(millis < 50, "stopped in " + millis + " ms");
+        Assertions.assertNotEquals(Move.NONE, result.bestMove());
+        Assertions.assertSame(result, future.join());
+    }
+
+    @Test
+    public void testCloseStopsSearch() throws InterruptedException {
+        Engine engine = new Engine(4, 2);
+        CompletableFuture<SearchResult> future = engine.search(Fen.parse(Fen.START_POSITION), SearchLimits.infinite());
+        Thread.sleep(100);
+        engine.close();
+        Assertions.assertTrue(future.isDone());
+        Assertions.assertNotEquals(Move.NONE, future.join().bestMove());
+        Assertions.assertThrows(RejectedExecutionException.class,
+                () -> engine.search(Fen.parse(Fen.START_POSITION), SearchLimits.depth(1)));
+    }
+
+    @Test
+    public void testStopAfterSearchFinished() {
+        Engine engine = new Engine(4);
+        Assertions.assertNull(engine.stop());
+        engine.search(Fen.parse(Fen.START_POSITION), SearchLimits.depth(2)).join();
+        Assertions.assertNull(engine.stop());
+    }
+
+    @Test
+    public void testCancelStopsSearch() {
+        Engine engine = new Engine(4);
+        CompletableFuture<SearchResult> future = engine.search(Fen.parse(Fen.START_POSITION), SearchLimits.infinite());
+        future.cancel(false);
+        Assertions.assertNull(engine.stop());
+
+        SearchResult next = engine.search(Fen.parse(Fen.START_POSITION), SearchLimits.depth(3)).join();
+        Assertions.assertEquals(3, next.depth());
+    }
+
+    @Test
+    public void testOneSearchAtATime() {
+        Engine engine = new Engine(4);
+        engine.search(Fen.parse(Fen.START_POSITION), SearchLimits.infinite());
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> engine.search(Fen.parse(Fen.START_POSITION), SearchLimits.depth(1)));
+        engine.stop();
+    }
+
+    @Test
+    public void testClockLimits() {
+        SearchLimits limits = SearchLimits.clock(60_000, 1_000);
+        Assertions.assertEquals((60_000 - 20) / 30 + 750, limits.softMillis());
+        Assertions.assertEquals(4 * limits.softMillis(), limits.hardMillis());
+
+        //Short of time, the hard limit is a third of what is left, whatever the increment
+        SearchLimits shortOfTime = SearchLimits.clock(320, 2_000);
+        Assertions.assertEquals(100, shortOfTime.hardMillis());
+        Assertions.assertEquals(100, shortOfTime.softMillis());
+
+        Assertions.assertEquals(0, SearchLimits.infinite().hardMillis());
+        Assertions.assertEquals(250, SearchLimits.moveTime(250).softMillis());
+    }
+
+    @Test
+    public void testStopsWithinClockBudget() {
+        long start = System.nanoTime();
+        SearchResult result = new Engine(4).search(Fen.parse(Bench.POSITIONS.get(1)), SearchLimits.clock(3_000, 0))
+                .join();
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        Assertions.assertNotEquals(Move.NONE, result.bestMove());
+        Assertions.assertTrue(millis < 3_000 / 3 + 100, "searched for " + millis + " ms");
+    }
+
+    @Test
+    public void testMultiPvFindsDistinctLines() {
+        Engine engine = new Engine(4);
+        engine.setMultiPv(3);
+        SearchResult result = engine.search(Fen.parse("6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1"),
+                SearchLimits.depth(4)).join();
+
+        Assertions.assertEquals(3, result.lines().size());
+        Assertions.assertEquals("d1d8", Move.toString(result.lines().get(0).move()));
+        Assertions.assertEquals(result.bestMove(), result.lines().get(0).move());
+        Assertions.assertTrue(result.lines().get(0).isMate());
+        Set<Integer> moves = new HashSet<>();
+        for(int i = 0; i < result.lines().size(); i++) {
+            SearchResult.Line line = result.lines().get(i);
+            Assertions.assertTrue(moves.add(line.move()), "repeated " + line.pvString());
+            if(i > 0) {
+                Assertions.assertTrue(line.score() <= result.lines().get(i - 1).score());
+                Assertions.assertFalse(line.isMate(), line.pvString());
+            }
+        }
+    }
+
+    @Test
+    public void testMultiPvCappedAtLegalMoves() {
+        //The king in check in the corner has only two moves
+        Engine engine = new Engine(4);
+        engine.setMultiPv(5);
+        SearchResult result = engine.search(Fen.parse("k7/8/2Q5/8/8/8/8/7K b - - 0 1"), SearchLimits.depth(3))
+                .join();
+        Assertions.assertEquals(2, result.lines().size());
+    }
+}
@@ -0,0 +1,71 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.Fen;
+import chess.MoveList;
+import org.junit.jupiter.api.*;
+
+public class EvaluatorTests {
+
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    private static void assertScoresMatchFreshBoard(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        ChessBoard fresh = Fen.parse(Fen.write(game)).getBoard();
+        Assertions.assertEquals(fresh.getMiddlegameScore(), board.getMiddlegameScore());
+        Assertions.assertEquals(fresh.getEndgameScore(), board.getEndgameScore());
+        Assertions.assertEquals(fresh.getPhase(), board.getPhase());
+        Assertions.assertEquals(fresh.getPawnKey(), board.getPawnKey());
+    }
+
+    private static void walk(ChessGame game, int depth) {
+        assertScoresMatchFreshBoard(game);
+        if(depth == 0) {
+            return;
+        }
+        MoveList moves = new MoveList();
+        game.legalMoves(moves);
+        for(int i = 0; i < moves.size(); i++) {
+            game.makeMove(moves.get(i));
+            walk(game, depth - 1);
+            game.unmakeMove();
+        }
+    }
+
+    @Test
+    public void testIncrementalScoresMatchRebuild() {
+        ChessGame game = Fen.parse(KIWIPETE);
+        ChessBoard before = game.getBoard().clone();
+        walk(game, 2);
+        Assertions.assertEquals(before.getMiddlegameScore(), game.getBoard().getMiddlegameScore());
+        Assertions.assertEquals(before.getEndgameScore(), game.getBoard().getEndgameScore());
+        Assertions.assertEquals(before.getPawnKey(), game.getBoard().getPawnKey());
+    }
+
+    @Test
+    public void testStartPositionIsLevel() {
+        ChessGame game = Fen.parse(Fen.START_POSITION);
+        Assertions.assertEquals(0, new Evaluator().evaluate(game));
+        Assertions.assertEquals(24, game.getBoard().getPhase());
+    }
+
+    @Test
+    public void testMirroredPositionsScoreAlike() {
+        Evaluator evaluator = new Evaluator();
+        int white = evaluator.evaluate(Fen.parse("4k3/pp4p1/8/3P4/8/2N5/PP3PPP/4K2R w - - 0 1"));
+        int black = evaluator.evaluate(Fen.parse("4k2r/pp3ppp/2n5/8/3p4/8/PP4P1/4K3 b - - 0 1"));
+        Assertions.assertEquals(white, black);
+        Assertions.assertTrue(white > 0);
+    }
+
+    @Test
+    public void testPawnStructure() {
+        //White: isolated passed pawn on e6. Black: doubled, isolated, passed pawns on c4 and c3.
+        ChessBoard board = Fen.parse("4k3/8/4P3/8/2p5/2p5/8/4K3 w - - 0 1").getBoard();
+        int packed = PawnTable.evaluate(board);
+        Assertions.assertEquals((-10 + 40) - (-10 - 20 + 40 + 25), PawnTable.middlegame(packed));
+        Assertions.assertEquals((-15 + 85) - (-20 - 30 + 85 + 55), PawnTable.endgame(packed));
+        Assertions.assertEquals(packed, new PawnTable(16).probe(board));
+    }
+}
@@ -0,0 +1,65 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.Fen;
+import chess.Move;
+import org.junit.jupiter.api.*;
+
+public class MateSolverTests {
+
+    @Test
+    public void testMateInOne() {
+        MateSolver.Result result = new MateSolver(1).solve(Fen.parse("6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1"), 3, 0);
+        Assertions.assertEquals(MateSolver.Status.MATE, result.status());
+        Assertions.assertEquals(1, result.moves());
+        Assertions.assertEquals("d1d8", Move.toString(result.bestMove()));
+    }
+
+    @Test
+    public void testShortestMateFollowsThroughToMate() {
+        //The queen sacrifice on f6 opens the king to Bxf7 mate
+        ChessGame game = Fen.parse("r2qkb1r/pp2nppp/3p4/2pNN1B1/2BnP3/3P4/PPP2PPP/R2bK2R w KQ - 1 10");
+        //A one megabyte table holds a short proof with room to spare
+        MateSolver.Result result = new MateSolver(1).solve(game, 4, 0);
+        Assertions.assertEquals(MateSolver.Status.MATE, result.status());
+        Assertions.assertEquals(2, result.moves());
+        Assertions.assertEquals(3, result.pv().length);
+
+        ChessGame line = new ChessGame(game);
+        for(int move : result.pv()) {
+            line.makeMove(move);
+        }
+        Assertions.assertTrue(line.isInCheckmate(line.getTeamTurn()));
+    }
+
+    @Test
+    public void testNoMate() {
+        MateSolver.Result result = new MateSolver(1).solve(Fen.parse("4k3/8/8/8/8/8/4P3/4K3 w - - 0 1"), 3, 0);
+        Assertions.assertEquals(MateSolver.Status.NO_MATE, result.status());
+        Assertions.assertEquals(0, result.pv().length);
+    }
+
+    @Test
+    public void testStalemateIsNotMate() {
+        //Qb6 would stalemate, and every other move lets the king out
+        MateSolver.Result result = new MateSolver(1).solve(Fen.parse("k7/8/2K5/8/8/8/8/1Q6 w - - 0 1"), 1, 0);
+        Assertions.assertEquals(MateSolver.Status.MATE, result.status());
+        Assertions.assertNotEquals("b1b6", Move.toString(result.bestMove()));
+    }
+
+    @Test
+    public void testGivesUpAtNodeLimit() {
+        MateSolver.Result result = new MateSolver(1).solve(Fen.parse(Fen.START_POSITION), 5, 10_000);
+        Assertions.assertEquals(MateSolver.Status.UNKNOWN, result.status());
+        Assertions.assertTrue(result.nodes() <= 10_000 + 1, "expanded " + result.nodes());
+    }
+
+    @Test
+    public void testLongMateMatchesTablebase() {
+        //The tablebase has this queen against king won in fifteen plies
+        MateSolver.Result result = new MateSolver().solve(Fen.parse("8/8/3k4/8/8/8/8/Q3K3 w - - 0 1"), 8, 0);
+        Assertions.assertEquals(MateSolver.Status.MATE, result.status());
+        Assertions.assertEquals(8, result.moves());
+        Assertions.assertEquals(15, result.pv().length);
+    }
+}
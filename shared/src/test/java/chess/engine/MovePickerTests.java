@@ -0,0 +1,40 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.Fen;
+import chess.Move;
+import org.junit.jupiter.api.*;
+
+public class MovePickerTests {
+
+    private static int move(String from, String to) {
+        return Move.of(Fen.parseSquare(from), Fen.parseSquare(to));
+    }
+
+    @Test
+    public void testOrder() {
+        //The pawn on d4 can take a queen or a knight, the rook on a1 can take the other queen
+        ChessGame game = Fen.parse("4k3/8/8/q1q1n3/3P4/8/8/R6K w - - 0 1");
+        int ttMove = move("h1", "h2");
+        int killer = move("a1", "b1");
+        int[] killers = {killer, Move.NONE};
+        int[][] history = new int[2][64 * 64];
+        history[0][Fen.parseSquare("h1") << 6 | Fen.parseSquare("g2")] = 500;
+
+        MovePicker picker = new MovePicker();
+        picker.init(game, ttMove, killers, history);
+
+        Assertions.assertEquals(ttMove, picker.next());
+        Assertions.assertEquals(move("d4", "c5"), picker.next());
+        Assertions.assertEquals(move("a1", "a5"), picker.next());
+        Assertions.assertEquals(move("d4", "e5"), picker.next());
+        Assertions.assertEquals(killer, picker.next());
+        Assertions.assertEquals(move("h1", "g2"), picker.next());
+
+        int count = 6;
+        while(picker.next() != Move.NONE) {
+            count++;
+        }
+        Assertions.assertEquals(game.legalMoves(game.getTeamTurn()).size(), count);
+    }
+}
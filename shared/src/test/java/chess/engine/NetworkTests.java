@@ -0,0 +1,93 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessGame.TeamColor;
+import chess.Fen;
+import chess.Move;
+import chess.MoveList;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+public class NetworkTests {
+
+    private static final Network NETWORK = Network.random(32, 1);
+
+    private static void walk(ChessGame game, Accumulators incremental, int depth) {
+        Accumulators fresh = new Accumulators(NETWORK, new ScalarNetworkMath(), 1);
+        for(TeamColor perspective : TeamColor.values()) {
+            Assertions.assertArrayEquals(fresh.accumulator(game.getBoard(), perspective),
+                    incremental.accumulator(game.getBoard(), perspective));
+        }
+        if(depth == 0) {
+            return;
+        }
+        MoveList moves = new MoveList();
+        game.legalMoves(moves);
+        for(int i = 0; i < moves.size(); i++) {
+            incremental.push(game.getBoard(), moves.get(i));
+            game.makeMove(moves.get(i));
+            walk(game, incremental, depth - 1);
+            game.unmakeMove();
+            incremental.pop();
+        }
+    }
+
+    @Test
+    public void testIncrementalUpdatesMatchRefresh() {
+        //Castling, en passant, promotions and king moves
+        for(String fen : new String[] {
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1",
+                "8/8/8/2k5/2pP4/8/B7/4K3 b - d3 0 1"}) {
+            walk(Fen.parse(fen), new Accumulators(NETWORK, NetworkMath.best(), 4), 2);
+        }
+    }
+
+    @Test
+    public void testVectorMatchesScalar() {
+        NetworkMath scalar = new ScalarNetworkMath();
+        NetworkMath vector = NetworkMath.best();
+        //Only the vector profile builds and enables the vector version
+        Assumptions.assumeFalse(vector instanceof ScalarNetworkMath);
+        Random random = new Random(7);
+        //A length that leaves lanes over after the last whole vector
+        short[] weights = new short[3 * 37];
+        for(int i = 0; i < weights.length; i++) {
+            weights[i] = (short) (random.nextInt(2001) - 1000);
+        }
+        short[] scalarAccumulator = new short[37];
+        short[] vectorAccumulator = new short[37];
+        scalar.add(scalarAccumulator, weights, 0);
+        vector.add(vectorAccumulator, weights, 0);
+        scalar.subtract(scalarAccumulator, weights, 37);
+        vector.subtract(vectorAccumulator, weights, 37);
+        Assertions.assertArrayEquals(scalarAccumulator, vectorAccumulator);
+        Assertions.assertEquals(scalar.activate(scalarAccumulator, weights, 74),
+                vector.activate(vectorAccumulator, weights, 74));
+    }
+
+    @Test
+    public void testSaveAndLoad(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("test.nnue");
+        NETWORK.save(file);
+        Network loaded = Network.load(file);
+        Assertions.assertEquals(NETWORK.getHiddenSize(), loaded.getHiddenSize());
+        Assertions.assertArrayEquals(NETWORK.featureWeights, loaded.featureWeights);
+        Assertions.assertArrayEquals(NETWORK.hiddenBiases, loaded.hiddenBiases);
+        Assertions.assertArrayEquals(NETWORK.outputWeights, loaded.outputWeights);
+        Assertions.assertEquals(NETWORK.outputBias, loaded.outputBias);
+    }
+
+    @Test
+    public void testSearchesWithNetwork() {
+        Engine engine = new Engine();
+        engine.setNetwork(NETWORK);
+        SearchResult result = engine.search(Fen.parse("6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1"),
+                SearchLimits.depth(3)).join();
+        Assertions.assertEquals("d1d8", Move.toString(result.bestMove()));
+    }
+}
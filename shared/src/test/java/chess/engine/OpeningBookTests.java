@@ -0,0 +1,137 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.Fen;
+import chess.Move;
+import chess.San;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+public class OpeningBookTests {
+
+    private static final String GAMES = """
+            [Event "First"]
+            [Result "1-0"]
+
+            1. e4 e5 2. Nf3 {main line} Nc6 (2... d6 3. d4) 3. Bb5 a6 1-0
+
+            [Event "Second"]
+            [Result "0-1"]
+
+            1. e4 c5 2.Nf3 d6 $1 0-1
+
+            [Event "Third"]
+            [Result "1/2-1/2"]
+
+            1. d4 d5 2. c4 e6 1/2-1/2
+            """;
+
+    private static OpeningBook build(Path directory, int maxPlies) throws IOException {
+        BookBuilder builder = new BookBuilder(maxPlies);
+        builder.addGames(new StringReader(GAMES));
+        Assertions.assertEquals(3, builder.getGames());
+        Path file = directory.resolve("book.bin");
+        builder.write(file);
+        return OpeningBook.open(file);
+    }
+
+    @Test
+    public void testWeightsFromResults(@TempDir Path directory) throws IOException {
+        OpeningBook book = build(directory, 4);
+        ChessGame game = Fen.parse(Fen.START_POSITION);
+
+        List<OpeningBook.Entry> entries = book.probe(game);
+        Assertions.assertEquals(2, entries.size());
+        //e4 won once and lost once, d4 drew once
+        Assertions.assertEquals("e2e4", Move.toString(entries.get(0).move()));
+        Assertions.assertEquals(2, entries.get(0).weight());
+        Assertions.assertEquals("d2d4", Move.toString(entries.get(1).move()));
+        Assertions.assertEquals(1, entries.get(1).weight());
+
+        //Black's reply that lost earns nothing and is left out
+        game.makeMove(San.parse(game, "e4"));
+        entries = book.probe(game);
+        Assertions.assertEquals(1, entries.size());
+        Assertions.assertEquals("c7c5", Move.toString(entries.get(0).move()));
+    }
+
+    @Test
+    public void testStopsAtMaxPliesAndSkipsVariations(@TempDir Path directory) throws IOException {
+        OpeningBook book = build(directory, 4);
+        ChessGame game = Fen.parse(Fen.START_POSITION);
+        for(String san : new String[] {"e4", "e5", "Nf3", "Nc6"}) {
+            game.makeMove(San.parse(game, san));
+        }
+        Assertions.assertTrue(book.probe(game).isEmpty());
+
+        ChessGame variation = Fen.parse(Fen.START_POSITION);
+        for(String san : new String[] {"e4", "e5", "Nf3"}) {
+            variation.makeMove(San.parse(variation, san));
+        }
+        Assertions.assertTrue(book.probe(variation).isEmpty());
+    }
+
+    @Test
+    public void testReadsPolyglotEntries(@TempDir Path directory) throws IOException {
+        //Entries as another Polyglot tool writes them: 1. e4 from the start, and O-O as king takes rook
+        ChessGame castling = Fen.parse("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        ByteBuffer entries = ByteBuffer.allocate(2 * OpeningBook.ENTRY_BYTES);
+        long[] keys = {0x463B96181691FC9CL, castling.polyglotKey()};
+        int[] moves = {Fen.parseSquare("e4") | Fen.parseSquare("e2") << 6,
+                Fen.parseSquare("h1") | Fen.parseSquare("e1") << 6};
+        int first = Long.compareUnsigned(keys[0], keys[1]) < 0 ? 0 : 1;
+        for(int i : new int[] {first, 1 - first}) {
+            entries.putLong(keys[i]).putShort((short) moves[i]).putShort((short) 7).putInt(0);
+        }
+        Path file = directory.resolve("polyglot.bin");
+        Files.write(file, entries.array());
+
+        OpeningBook book = OpeningBook.open(file);
+        Assertions.assertEquals(2, book.size());
+        List<OpeningBook.Entry> found = book.probe(Fen.parse(Fen.START_POSITION));
+        Assertions.assertEquals(1, found.size());
+        Assertions.assertEquals("e2e4", Move.toString(found.get(0).move()));
+        Assertions.assertEquals(7, found.get(0).weight());
+        found = book.probe(castling);
+        Assertions.assertEquals(1, found.size());
+        Assertions.assertEquals(San.parse(castling, "O-O"), found.get(0).move());
+
+        Path truncated = directory.resolve("truncated.bin");
+        Files.write(truncated, new byte[OpeningBook.ENTRY_BYTES - 1]);
+        Assertions.assertThrows(IOException.class, () -> OpeningBook.open(truncated));
+    }
+
+    @Test
+    public void testCastleEncoding() {
+        ChessGame game = Fen.parse("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        Assertions.assertEquals(Fen.parseSquare("h1") | Fen.parseSquare("e1") << 6,
+                OpeningBook.encode(San.parse(game, "O-O")));
+        Assertions.assertEquals(Fen.parseSquare("a1") | Fen.parseSquare("e1") << 6,
+                OpeningBook.encode(San.parse(game, "O-O-O")));
+    }
+
+    @Test
+    public void testEngineAnswersFromBook(@TempDir Path directory) throws IOException {
+        Engine engine = new Engine();
+        engine.setBook(build(directory, 4));
+        SearchResult result = engine.search(Fen.parse(Fen.START_POSITION), SearchLimits.depth(20)).join();
+        Assertions.assertEquals(0, result.nodes());
+        Assertions.assertTrue(List.of("e2e4", "d2d4").contains(Move.toString(result.bestMove())));
+
+        SearchResult outOfBook = engine.search(Fen.parse("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1"),
+                SearchLimits.depth(2)).join();
+        Assertions.assertTrue(outOfBook.nodes() > 0);
+        //A book move is not a search in flight, so there is nothing to stop
+        engine.search(Fen.parse(Fen.START_POSITION), SearchLimits.depth(20)).join();
+        Assertions.assertNull(engine.stop());
+        Assertions.assertEquals(Move.NONE, engine.getBook().pick(Fen.parse("4k3/8/8/8/8/8/8/4K3 w - - 0 1"), new Random()));
+    }
+}
@@ -0,0 +1,80 @@
+package chess.engine;
+
+import chess.ChessPiece.PieceType;
+import chess.Fen;
+import chess.Move;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+public class TablebaseTests {
+
+    @TempDir
+    static Path directory;
+
+    private static Tablebase tablebase;
+
+    @BeforeAll
+    public static void generate() throws IOException {
+        try(TablebaseGenerator generator = new TablebaseGenerator(directory, 2)) {
+            generator.generate("KQvK");
+        }
+        tablebase = Tablebase.open(directory);
+    }
+
+    @Test
+    public void testEndgameNames() {
+        //Five three piece endgames, fifteen with both extra pieces on one side and fifteen split
+        Assertions.assertEquals(35, Material.all(4).size());
+        Assertions.assertEquals("KRvKP", Material.name(new PieceType[] {PieceType.PAWN}, new PieceType[] {PieceType.ROOK}));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Material.parse("KvKQ"));
+    }
+
+    @Test
+    public void testMateAndStalemate() {
+        Assertions.assertEquals(1, tablebase.size());
+        Assertions.assertEquals(new Tablebase.Probe(Tablebase.Outcome.WIN, 1),
+                tablebase.probe(Fen.parse("k7/8/1K6/8/8/8/7Q/8 w - - 0 1")));
+        Assertions.assertEquals(new Tablebase.Probe(Tablebase.Outcome.LOSS, 0),
+                tablebase.probe(Fen.parse("k6Q/8/1K6/8/8/8/8/8 b - - 0 1")));
+        Assertions.assertEquals(new Tablebase.Probe(Tablebase.Outcome.DRAW, 0),
+                tablebase.probe(Fen.parse("k7/8/1QK5/8/8/8/8/8 b - - 0 1")));
+        Assertions.assertNull(tablebase.probe(Fen.parse("k7/8/1K6/8/8/8/8/6RR w - - 0 1")));
+    }
+
+    @Test
+    public void testSymmetricPositionsAgree() {
+        Tablebase.Probe probe = tablebase.probe(Fen.parse("8/8/3k4/8/8/8/8/Q3K3 w - - 0 1"));
+        Assertions.assertEquals(Tablebase.Outcome.WIN, probe.outcome());
+        //Mirrored left to right, upside down, and with the colors swapped
+        Assertions.assertEquals(probe, tablebase.probe(Fen.parse("8/8/4k3/8/8/8/8/3K3Q w - - 0 1")));
+        Assertions.assertEquals(probe, tablebase.probe(Fen.parse("Q3K3/8/8/8/8/3k4/8/8 w - - 0 1")));
+        Assertions.assertEquals(probe, tablebase.probe(Fen.parse("q3k3/8/8/8/8/3K4/8/8 b - - 0 1")));
+    }
+
+    @Test
+    public void testLongestMate() {
+        //King and queen against king mates in at most ten moves, so the longest loss is twenty plies
+        ByteBuffer table = tablebase.table(Material.parse("KQvK"));
+        int longest = 0;
+        for(int i = 0; i < table.capacity(); i++) {
+            int code = table.get(i) & 0xFF;
+            if(code != Tablebase.ILLEGAL) {
+                longest = Math.max(longest, code - 1);
+            }
+        }
+        Assertions.assertEquals(20, longest);
+    }
+
+    @Test
+    public void testEngineUsesTables() {
+        Engine engine = new Engine();
+        engine.setTablebase(tablebase);
+        SearchResult result = engine.search(Fen.parse("8/8/3k4/8/8/8/8/Q3K3 w - - 0 1"), SearchLimits.depth(2)).join();
+        Assertions.assertTrue(result.score() > Score.TABLEBASE_WIN - 20, "scored " + result.score());
+        Assertions.assertNotEquals(Move.NONE, result.bestMove());
+    }
+}
@@ -0,0 +1,55 @@
+package chess.engine;
+
+import chess.Move;
+import org.junit.jupiter.api.*;
+
+public class TranspositionTableTests {
+
+    @Test
+    public void testStoreAndProbe() {
+        TranspositionTable table = new TranspositionTable(1);
+        table.newSearch();
+        int move = Move.of(12, 28);
+        table.store(0x1234L, move, -250, 7, TranspositionTable.LOWER);
+
+        long entry = table.probe(0x1234L);
+        Assertions.assertEquals(move, TranspositionTable.move(entry));
+        Assertions.assertEquals(-250, TranspositionTable.score(entry));
+        Assertions.assertEquals(7, TranspositionTable.depth(entry));
+        Assertions.assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+        Assertions.assertEquals(0L, table.probe(0x5678L));
+    }
+
+    @Test
+    public void testDeepEntrySurvivesShallowStores() {
+        TranspositionTable table = new TranspositionTable(1);
+        table.newSearch();
+        long deepKey = 1L << 40;
+        table.store(deepKey, Move.of(1, 2), 10, 12, TranspositionTable.EXACT);
+        for(int i = 1; i <= 3; i++) {
+            table.store(deepKey + ((long) i << 50), Move.of(3, 4), 20, 1, TranspositionTable.EXACT);
+        }
+
+        Assertions.assertEquals(12, TranspositionTable.depth(table.probe(deepKey)));
+        Assertions.assertNotEquals(0L, table.probe(deepKey + (3L << 50)));
+        Assertions.assertEquals(0L, table.probe(deepKey + (1L << 50)));
+    }
+
+    @Test
+    public void testKeepsMoveWhenNewResultHasNone() {
+        TranspositionTable table = new TranspositionTable(1);
+        table.newSearch();
+        table.store(99L, Move.of(8, 16), 0, 3, TranspositionTable.EXACT);
+        table.store(99L, Move.NONE, -40, 4, TranspositionTable.UPPER);
+        Assertions.assertEquals(Move.of(8, 16), TranspositionTable.move(table.probe(99L)));
+    }
+
+    @Test
+    public void testMateScoresRelativeToPly() {
+        int mateFromRoot = Score.MATE - 9;
+        int stored = TranspositionTable.scoreToTable(mateFromRoot, 4);
+        Assertions.assertEquals(Score.MATE - 5, stored);
+        Assertions.assertEquals(Score.MATE - 11, TranspositionTable.scoreFromTable(stored, 6));
+        Assertions.assertEquals(150, TranspositionTable.scoreFromTable(TranspositionTable.scoreToTable(150, 8), 3));
+    }
+}